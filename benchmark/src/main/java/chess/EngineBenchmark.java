@@ -0,0 +1,83 @@
+package chess;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the shared chess engine. Build with {@code mvn -pl benchmark -am package}
+ * and run {@code java -jar benchmark/target/benchmarks.jar -prof gc} to see allocation rates
+ * next to the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    private static final String MIDDLEGAME = "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1QBPPP/R3KB1R w";
+    private static final String FOOLS_MATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w";
+
+    private static final ChessPosition QUEEN = new ChessPosition(2, 4);
+    private static final ChessPosition KNIGHT = new ChessPosition(3, 3);
+
+    private static final ChessMove[] ROUND_TRIP = {
+            new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+            new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+            new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+            new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null),
+    };
+
+    private ChessGame middlegame;
+    private ChessGame start;
+    private ChessGame mated;
+    private ChessPiece queen;
+
+    @Setup
+    public void setup() {
+        middlegame = Fen.load(MIDDLEGAME);
+        start = new ChessGame();
+        mated = Fen.load(FOOLS_MATE);
+        queen = middlegame.getBoard().getPiece(QUEEN);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> pieceMoves() {
+        return queen.pieceMoves(middlegame.getBoard(), QUEEN);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> validMoves() {
+        return middlegame.validMoves(KNIGHT);
+    }
+
+    /**
+     * Four validated moves that bring the knights out and back, leaving the position unchanged
+     */
+    @Benchmark
+    public void makeMove(Blackhole blackhole) throws InvalidMoveException {
+        for (ChessMove move : ROUND_TRIP) {
+            start.makeMove(move);
+        }
+        blackhole.consume(start);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return mated.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean isInCheckmateMiddlegame() {
+        return middlegame.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long perft3() {
+        return Perft.perft(middlegame, 3);
+    }
+}
@@ -0,0 +1,51 @@
+package chess;
+
+import java.util.Map;
+
+/**
+ * Builds games from the piece placement and side-to-move fields of a FEN string.
+ * Castling, en passant and move counters are ignored, since the engine does not model them.
+ */
+public final class Fen {
+    private static final Map<Character, ChessPiece.PieceType> TYPES = Map.of(
+            'p', ChessPiece.PieceType.PAWN,
+            'n', ChessPiece.PieceType.KNIGHT,
+            'b', ChessPiece.PieceType.BISHOP,
+            'r', ChessPiece.PieceType.ROOK,
+            'q', ChessPiece.PieceType.QUEEN,
+            'k', ChessPiece.PieceType.KING);
+
+    private Fen() {
+    }
+
+    public static ChessGame load(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        var board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                row--;
+                col = 1;
+            } else if (Character.isDigit(c)) {
+                col += c - '0';
+            } else {
+                var color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                var type = TYPES.get(Character.toLowerCase(c));
+                if (type == null) {
+                    throw new IllegalArgumentException("Unknown piece '" + c + "' in " + fen);
+                }
+                board.addPiece(new ChessPosition(row, col), new ChessPiece(color, type));
+                col++;
+            }
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+        if (fields.length > 1 && fields[1].equals("b")) {
+            game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        } else {
+            game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,75 @@
+package chess;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counts the leaf nodes of the legal move tree from standard test positions and reports
+ * how fast, and with how much garbage, the engine got there.
+ * <p>
+ * The engine has no castling or en passant, so only positions and depths where neither
+ * can occur are listed; their counts match the published perft results.
+ * <br/>
+ * <code>
+ * mvn -pl benchmark exec:java
+ * </code>
+ */
+public class Perft {
+
+    public record Position(String name, String fen, long... expected) {
+        public int maxDepth() {
+            return expected.length;
+        }
+    }
+
+    public static final List<Position> POSITIONS = List.of(
+            new Position("start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+                    20, 400, 8902, 197281),
+            new Position("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w",
+                    14, 191),
+            new Position("promotions", "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b",
+                    24, 496, 9483, 182838, 3605103)
+    );
+
+    /**
+     * @return number of leaf nodes {@code depth} plies below the game's current position
+     */
+    public static long perft(ChessGame game, int depth) {
+        Collection<ChessMove> moves = game.allValidMoves(game.getTeamTurn());
+        if (depth <= 1) {
+            return depth == 1 ? moves.size() : 1;
+        }
+        long nodes = 0;
+        for (ChessMove move : moves) {
+            game.pushMove(move);
+            nodes += perft(game, depth - 1);
+            game.popMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean failed = false;
+        for (Position position : POSITIONS) {
+            for (int depth = 1; depth <= position.maxDepth(); depth++) {
+                ChessGame game = Fen.load(position.fen());
+                long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long nodes = perft(game, depth);
+                long elapsed = Math.max(System.nanoTime() - start, 1);
+                long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+                long expected = position.expected()[depth - 1];
+                failed |= nodes != expected;
+                System.out.printf("%-10s depth %d: %,12d nodes %s %,14.0f nodes/s %,10.1f MB/s %,8.1f B/node%n",
+                        position.name(), depth, nodes, nodes == expected ? "ok  " : "FAIL",
+                        nodes * 1e9 / elapsed, allocated * 1e3 / elapsed, (double) allocated / nodes);
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
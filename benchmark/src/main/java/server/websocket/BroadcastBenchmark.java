@@ -0,0 +1,87 @@
+package server.websocket;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.*;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans a LOAD_GAME out to a game with many observers. The sessions are stubs that count the
+ * characters handed to them and complete each write at once, so the timings are the server's
+ * own cost per broadcast.
+ * {@code perRecipientSerialization} repeats the old loop, which serialized the message again for
+ * every connection, as a reference point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    private static final int GAME_ID = 1;
+
+    @Param({"1", "20", "200"})
+    public int observers;
+
+    private ConnectionManager connections;
+    private Session[] sessions;
+    private LoadGameMessage message;
+    private long sent;
+
+    @Setup
+    public void setup() {
+        connections = new ConnectionManager();
+        sessions = new Session[observers];
+        for (int i = 0; i < observers; i++) {
+            sessions[i] = stubSession();
+            connections.add(GAME_ID, sessions[i], "auth" + i);
+        }
+        var game = new GameData(GAME_ID, "white", "black", "tournament", new ChessGame());
+        message = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game);
+    }
+
+    @Benchmark
+    public long generalBroadcast() throws IOException {
+        connections.generalBroadcast(GAME_ID, message);
+        return sent;
+    }
+
+    @Benchmark
+    public long perRecipientSerialization() throws IOException {
+        for (var session : sessions) {
+            session.getRemote().sendString(new Gson().toJson(message));
+        }
+        return sent;
+    }
+
+    private Session stubSession() {
+        var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("send") && args != null && args[0] instanceof String text) {
+                        sent += text.length();
+                        if (args.length > 1 && args[1] instanceof WriteCallback callback) {
+                            callback.writeSuccess();
+                        }
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+}
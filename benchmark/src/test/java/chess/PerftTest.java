@@ -0,0 +1,23 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PerftTest {
+
+    @Test
+    public void knownPositions() {
+        for (Perft.Position position : Perft.POSITIONS) {
+            int depth = Math.min(position.maxDepth(), 4);
+            Assertions.assertEquals(position.expected()[depth - 1], Perft.perft(Fen.load(position.fen()), depth),
+                    position.name() + " perft " + depth);
+        }
+    }
+
+    @Test
+    public void perftLeavesGameUnchanged() {
+        var game = new ChessGame();
+        Perft.perft(game, 3);
+        Assertions.assertEquals(new ChessGame(), game);
+    }
+}
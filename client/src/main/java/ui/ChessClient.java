@@ -159,6 +159,8 @@ public class ChessClient {
         int gameID = myGameData.gameID();
         ws.leaveGame(gameID, authData);
         state = State.LOGGEDIN;
+        myGameData = null;
+        chessGame = null;
         return "";
     }
 
@@ -206,7 +208,7 @@ public class ChessClient {
                 return "Please select a number from the list of games.";
             }
             server.joinGame(authData.authToken(), join);
-            ws = new WebsocketFacade(serverUrl,notificationHandler, this);
+            ws = new WebsocketFacade(serverUrl, notificationHandler, this, true);
             ws.joinGame(join, authData);
             state = State.GAMEPLAY;
             return String.format("You successfully joined and are playing game %s\n", params[0]);
@@ -248,7 +250,7 @@ public class ChessClient {
                 throw new ResponseException(400, "Please input a gameID from the list of games.");
             }
             JoinGameRequest join = new JoinGameRequest(Integer.parseInt(params[0]), null);
-            ws = new WebsocketFacade(serverUrl,notificationHandler, this);
+            ws = new WebsocketFacade(serverUrl, notificationHandler, this, true);
             ws.joinGame(join, authData);
             state = State.GAMEPLAY;
             return String.format("You are successfully observing the game %s", params[0]);
@@ -328,6 +330,36 @@ public class ChessClient {
         myGameData = gameData;
     }
 
+    /**
+     * Replaces the local game with a fresh copy from the server, keeping the rest of the game data
+     */
+    public void updateGame(ChessGame game) {
+        chessGame = game;
+        if (myGameData != null) {
+            myGameData = new GameData(myGameData.gameID(), myGameData.whiteUsername(),
+                    myGameData.blackUsername(), myGameData.gameName(), game);
+        }
+    }
+
+    public ChessGame getChessGame() {
+        return chessGame;
+    }
+
+    /**
+     * @return True if a game has been loaded and not left since
+     */
+    public boolean hasGame() {
+        return myGameData != null;
+    }
+
+    public int getGameID() {
+        return myGameData.gameID();
+    }
+
+    public AuthData getAuthData() {
+        return authData;
+    }
+
     public ChessGame.TeamColor getMyTeamColor() {
         return myTeamColor;
     }
@@ -3,13 +3,16 @@ package ui.websocket;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
-import com.google.gson.Gson;
+import chess.InvalidMoveException;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.JsonCodec;
 import model.JoinGameRequest;
 import ui.ChessBoard;
 import ui.ChessClient;
+import websocket.BinaryCodec;
+import websocket.commands.ConnectCommand;
 import websocket.commands.GameCommand;
 import websocket.commands.MoveCommand;
 import websocket.commands.UserGameCommand;
@@ -19,6 +22,7 @@ import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -30,23 +34,46 @@ public class WebsocketFacade extends Endpoint {
     NotificationHandler notificationHandler;
     ChessClient chessClient;
     private final Map<UserGameCommand.CommandType, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
+    private final boolean binary;
 
 
     public WebsocketFacade(String url, NotificationHandler notificationHandler, ChessClient chessClient) throws ResponseException {
+        this(url, notificationHandler, chessClient, false);
+    }
+
+    /**
+     * @param binary True to talk to the server in the compact binary protocol instead of JSON
+     */
+    public WebsocketFacade(String url, NotificationHandler notificationHandler, ChessClient chessClient,
+                           boolean binary) throws ResponseException {
         try {
             url = url.replace("http", "ws");
             URI socketURI = new URI(url + "/ws");
             this.notificationHandler = notificationHandler;
             this.chessClient = chessClient;
+            this.binary = binary;
 
             WebSocketContainer container = ContainerProvider.getWebSocketContainer();
             this.session = container.connectToServer(this, socketURI);
 
-            //set message handler
+            //set message handlers
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    extracted(message, notificationHandler, chessClient);
+                    extracted(message);
+                }
+            });
+            this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    try {
+                        var bytes = new byte[message.remaining()];
+                        message.get(bytes);
+                        dispatch(BinaryCodec.decodeMessage(bytes, 0, bytes.length));
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                        System.err.println("Failed to process incoming binary message");
+                    }
                 }
             });
         } catch (DeploymentException | IOException | URISyntaxException ex) {
@@ -54,10 +81,10 @@ public class WebsocketFacade extends Endpoint {
         }
     }
 
-    private void extracted(String message, NotificationHandler notificationHandler, ChessClient chessClient) {
+    private void extracted(String message) {
         try {
             // Parse the common fields to determine message type
-            ServerMessage baseMessage = new Gson().fromJson(message, ServerMessage.class);
+            ServerMessage baseMessage = JsonCodec.GSON.fromJson(message, ServerMessage.class);
 
             CompletableFuture<String> future = pendingResponses.remove(baseMessage.getServerMessageType());
             if (future != null) {
@@ -65,45 +92,87 @@ public class WebsocketFacade extends Endpoint {
                 return;
             }
 
-            switch (baseMessage.getServerMessageType()) {
-                case NOTIFICATION -> {
-                    NotificationMessage notification = new Gson().fromJson(message, NotificationMessage.class);
+            Class<? extends ServerMessage> type = switch (baseMessage.getServerMessageType()) {
+                case NOTIFICATION -> NotificationMessage.class;
+                case LOAD_GAME -> LoadGameMessage.class;
+                case MOVE -> MoveMessage.class;
+                case ERROR -> ErrorMessage.class;
+                case GAME -> GameMessage.class;
+            };
+            dispatch(JsonCodec.GSON.fromJson(message, type));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            System.err.println("Failed to process incoming message: " + message);
+        }
+    }
 
+    private void dispatch(ServerMessage serverMessage) throws ResponseException {
+        switch (serverMessage) {
+            case NotificationMessage notification ->
                     notificationHandler.notify(new Notification(notification.getServerMessageType(), notification.getMessage()));
+            case LoadGameMessage loadGameMessage -> {
+                GameData gameData = loadGameMessage.getGame();
+                System.out.println("\n");
+                if (chessClient.getMyTeamColor() == ChessGame.TeamColor.WHITE) {
+                    ChessBoard.main(gameData.game().getBoard(), null, true);
+                } else{
+                    ChessBoard.main(gameData.game().getBoard(), null, false);
                 }
-                case LOAD_GAME -> {
-                    LoadGameMessage loadGameMessage = new Gson().fromJson(message, LoadGameMessage.class);
-                    GameData gameData = loadGameMessage.getGame();
-                    System.out.println("\n");
-                    if (chessClient.getMyTeamColor() == ChessGame.TeamColor.WHITE) {
-                        ChessBoard.main(gameData.game().getBoard(), null, true);
-                    } else{
-                        ChessBoard.main(gameData.game().getBoard(), null, false);
-                    }
-                    chessClient.updateGameData(gameData);
-                    notificationHandler.notify(new Notification(loadGameMessage.getServerMessageType(), "New board"));
-                }
-                case ERROR -> {
-                    ErrorMessage errorMessage = new Gson().fromJson(message, ErrorMessage.class);
+                chessClient.updateGameData(gameData);
+                notificationHandler.notify(new Notification(loadGameMessage.getServerMessageType(), "New board"));
+            }
+            case MoveMessage moveMessage -> applyMove(moveMessage);
+            case ErrorMessage errorMessage ->
                     notificationHandler.notify(new Notification(errorMessage.getServerMessageType(), errorMessage.getError()));
+            case GameMessage gameMessage -> {
+                chessClient.updateGame(gameMessage.getGame());
+                System.out.println("\n");
+                if (chessClient.getMyTeamColor() == ChessGame.TeamColor.WHITE) {
+                    ChessBoard.main(gameMessage.getGame().getBoard(), gameMessage.getHighlight(), true);
+                } else{
+                    ChessBoard.main(gameMessage.getGame().getBoard(), gameMessage.getHighlight(), false);
                 }
-                case GAME -> {
-                    GameMessage gameMessage = new Gson().fromJson(message, GameMessage.class);
-                    System.out.println("\n");
-                    if (chessClient.getMyTeamColor() == ChessGame.TeamColor.WHITE) {
-                        ChessBoard.main(gameMessage.getGame().getBoard(), gameMessage.getHighlight(), true);
-                    } else{
-                        ChessBoard.main(gameMessage.getGame().getBoard(), gameMessage.getHighlight(), false);
-                    }
-                    notificationHandler.notify(new Notification(gameMessage.getServerMessageType(), ""));
-                }
-                default -> {
-                    System.err.println("Unknown message type received: " + baseMessage.getServerMessageType());
+                notificationHandler.notify(new Notification(gameMessage.getServerMessageType(), ""));
+            }
+            default -> System.err.println("Unknown message type received: " + serverMessage.getServerMessageType());
+        }
+    }
+
+    /**
+     * Plays a move announced by the server on the local game. If the local game can't play it
+     * or ends up in a different position than the server's, asks for a full snapshot instead.
+     * Moves that arrive when no game is loaded, such as after leaving, are ignored.
+     */
+    private void applyMove(MoveMessage moveMessage) throws ResponseException {
+        if (!chessClient.hasGame()) {
+            return;
+        }
+        ChessGame game = chessClient.getChessGame();
+        boolean inSync = false;
+        if (game != null) {
+            try {
+                game.makeMove(moveMessage.getMove());
+                if (moveMessage.getGameOver()) {
+                    game.resignGame();
                 }
+                inSync = MoveMessage.positionHash(game).equals(moveMessage.getPositionHash());
+            } catch (InvalidMoveException ignored) {
             }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            System.err.println("Failed to process incoming message: " + message);
+        }
+        if (!inSync) {
+            getGame(chessClient.getGameID(), chessClient.getAuthData(), null);
+            return;
+        }
+        System.out.println("\n");
+        ChessBoard.main(game.getBoard(), null, chessClient.getMyTeamColor() == ChessGame.TeamColor.WHITE);
+        notificationHandler.notify(new Notification(ServerMessage.ServerMessageType.LOAD_GAME, "New board"));
+    }
+
+    private void send(UserGameCommand command) throws IOException {
+        if (binary) {
+            this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryCodec.encodeCommand(command)));
+        } else {
+            this.session.getBasicRemote().sendText(JsonCodec.GSON.toJson(command));
         }
     }
 
@@ -114,7 +183,7 @@ public class WebsocketFacade extends Endpoint {
     public void getGame(int gameID, AuthData authData, List<ChessPosition> highlight) throws ResponseException {
         try {
             var action = new GameCommand(UserGameCommand.CommandType.LOAD_GAME, authData.authToken(), gameID, highlight);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -122,8 +191,8 @@ public class WebsocketFacade extends Endpoint {
 
     public void joinGame(JoinGameRequest joinGameRequest, AuthData auth) throws ResponseException {
         try {
-            var action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, auth.authToken(), joinGameRequest.gameID());
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            var action = new ConnectCommand(auth.authToken(), joinGameRequest.gameID(), true);
+            send(action);
         } catch (IOException e) {
             throw new ResponseException(500, e.getMessage());
         }
@@ -133,7 +202,7 @@ public class WebsocketFacade extends Endpoint {
     public void resignGame(int gameID, AuthData auth) throws ResponseException {
         try {
             var action = new UserGameCommand(UserGameCommand.CommandType.RESIGN, auth.authToken(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -142,7 +211,7 @@ public class WebsocketFacade extends Endpoint {
     public void leaveGame(int gameID, AuthData auth) throws ResponseException {
         try {
             var action = new UserGameCommand(UserGameCommand.CommandType.LEAVE, auth.authToken(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
             this.session.close();
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
@@ -152,7 +221,7 @@ public class WebsocketFacade extends Endpoint {
     public void makeMove(int gameID, AuthData auth, ChessMove move, ChessGame.TeamColor teamColor) throws ResponseException {
         try {
             var action = new MoveCommand(UserGameCommand.CommandType.MAKE_MOVE, auth.authToken(), gameID, move, teamColor);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(action);
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -6,7 +6,8 @@ public class Main {
     public static void main(String[] args) throws ResponseException {
         var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
-        var server = new Server();
+        var server = new Server(Boolean.getBoolean("server.virtualThreads"));
         server.run(8080);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
     }
 }
\ No newline at end of file
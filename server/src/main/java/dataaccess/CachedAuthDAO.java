@@ -0,0 +1,173 @@
+package dataaccess;
+
+import exception.ResponseException;
+import model.AuthData;
+import model.UserData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps recently used auth tokens in memory in front of a {@link SQLAuthDAO}.
+ * <p>
+ * At most {@code maxSize} tokens are held, least recently used first out, and each is trusted
+ * for {@code ttlMillis} after it was loaded before the database is asked again. Unknown tokens
+ * are not cached, so a miss always reaches MySQL. Deleting a token through this DAO drops it
+ * from the cache at once; a token deleted by another server stays valid here until it expires.
+ * <p>
+ * Every invalidation moves a generation counter on. A miss only caches what it read if the
+ * generation is unchanged since before the read, so a lookup racing a logout can never put the
+ * deleted token back.
+ */
+public class CachedAuthDAO implements AuthDAO {
+    private final SQLAuthDAO store;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> tokens;
+    /**
+     * Invalidations so far, guarded by {@link #tokens}
+     */
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Snapshot of the cache's counters
+     *
+     * @param size        tokens currently cached
+     * @param hits        lookups answered from memory
+     * @param misses      lookups that went to the database
+     * @param expirations cached tokens reloaded because their TTL had passed
+     * @param evictions   tokens dropped to stay within the size bound
+     */
+    public record Stats(int size, long hits, long misses, long expirations, long evictions) {
+    }
+
+    private record Entry(AuthData auth, long expiresAt) {
+    }
+
+    /**
+     * Uses the size and TTL from the optional db.authCacheSize and db.authCacheTtlMillis properties
+     */
+    public CachedAuthDAO() throws ResponseException {
+        this(new SQLAuthDAO(),
+                Integer.parseInt(DatabaseManager.property("db.authCacheSize", "10000")),
+                Long.parseLong(DatabaseManager.property("db.authCacheTtlMillis", "60000")));
+    }
+
+    public CachedAuthDAO(SQLAuthDAO store, int maxSize, long ttlMillis) {
+        this.store = store;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CachedAuthDAO.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public AuthData createAuth(UserData user) throws ResponseException {
+        long before = generation();
+        var auth = store.createAuth(user);
+        cache(auth, before);
+        return auth;
+    }
+
+    @Override
+    public AuthData getAuth(String auth) throws ResponseException {
+        if (auth == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (tokens) {
+            entry = tokens.get(auth);
+        }
+        if (entry != null) {
+            if (entry.expiresAt() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.auth();
+            }
+            expirations.incrementAndGet();
+            synchronized (tokens) {
+                tokens.remove(auth, entry);
+            }
+        }
+        misses.incrementAndGet();
+        long before = generation();
+        var found = store.getAuth(auth);
+        if (found != null) {
+            cache(found, before);
+        }
+        return found;
+    }
+
+    @Override
+    public void deleteAuth(AuthData auth) throws ResponseException {
+        try {
+            store.deleteAuth(auth);
+        } finally {
+            invalidate(auth.authToken());
+        }
+    }
+
+    public void clear() throws ResponseException {
+        try {
+            store.clear();
+        } finally {
+            synchronized (tokens) {
+                tokens.clear();
+                generation++;
+            }
+        }
+    }
+
+    /**
+     * Drops a token from the cache so its next lookup goes to the database
+     */
+    public void invalidate(String auth) {
+        synchronized (tokens) {
+            tokens.remove(auth);
+            generation++;
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (tokens) {
+            size = tokens.size();
+        }
+        return new Stats(size, hits.get(), misses.get(), expirations.get(), evictions.get());
+    }
+
+    private long generation() {
+        synchronized (tokens) {
+            return generation;
+        }
+    }
+
+    /**
+     * Caches a token read from the database, unless something was invalidated since the read
+     * began at generation {@code before}
+     */
+    private void cache(AuthData auth, long before) {
+        if (maxSize <= 0 || ttlNanos <= 0) {
+            return;
+        }
+        var entry = new Entry(auth, System.nanoTime() + ttlNanos);
+        synchronized (tokens) {
+            if (generation == before) {
+                tokens.put(auth.authToken(), entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections.
+ * <p>
+ * At most {@code maxSize} connections exist at once; a caller that finds them all in use
+ * waits up to {@code timeoutMillis} for one to come back. Connections handed out are proxies
+ * whose {@code close()} returns the real connection to the pool, so callers keep using
+ * try-with-resources exactly as with a fresh {@link DriverManager} connection. Any statement
+ * still open when the proxy is closed is closed with it. Statements are not wrapped, so their
+ * {@code getConnection()} leads to the pooled connection itself, which must not be closed. Idle
+ * connections are checked with {@link Connection#isValid} before reuse and closed by a
+ * background sweep once they have sat unused for longer than {@code idleMillis}.
+ */
+public class ConnectionPool {
+    private static final long VALIDATE_AFTER_MILLIS = 5_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String catalog;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final long idleMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean shutdown;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    /**
+     * Snapshot of the pool's counters
+     *
+     * @param active          connections currently handed out
+     * @param idle            open connections waiting in the pool
+     * @param borrows         total connections handed out
+     * @param waits           borrows that had to wait for a free connection
+     * @param totalWaitMillis time spent waiting across all borrows
+     * @param maxWaitMillis   longest single wait
+     * @param timeouts        borrows that gave up waiting
+     * @param opened          physical connections opened over the pool's lifetime
+     */
+    public record Stats(int active, int idle, long borrows, long waits, double totalWaitMillis,
+                        double maxWaitMillis, long timeouts, long opened) {
+    }
+
+    private record PooledConnection(Connection connection, long lastUsed) {
+    }
+
+    public ConnectionPool(String url, String user, String password, String catalog,
+                          int maxSize, long timeoutMillis, long idleMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.catalog = catalog;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.idleMillis = idleMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleMillis / 2, 1_000);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if the pool is exhausted.
+     * Close the connection to give it back.
+     */
+    public Connection getConnection() throws DataAccessException {
+        if (shutdown) {
+            throw new DataAccessException("The connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire()) {
+                waits.incrementAndGet();
+                if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timeouts.incrementAndGet();
+                    throw new DataAccessException("Timed out waiting for a database connection");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrows.incrementAndGet();
+
+        try {
+            return wrap(takeIdleOrOpen());
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    private Connection takeIdleOrOpen() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            boolean stale = System.currentTimeMillis() - pooled.lastUsed() > VALIDATE_AFTER_MILLIS;
+            if (!stale || pooled.connection().isValid(2)) {
+                return pooled.connection();
+            }
+            closeQuietly(pooled.connection());
+        }
+        var conn = DriverManager.getConnection(url, user, password);
+        conn.setCatalog(catalog);
+        opened.incrementAndGet();
+        return conn;
+    }
+
+    private void release(Connection conn, boolean broken) {
+        try {
+            if (broken || shutdown || conn.isClosed()) {
+                closeQuietly(conn);
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            idle.offerFirst(new PooledConnection(conn, System.currentTimeMillis()));
+            if (shutdown) {
+                closeIdle();
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        PooledConnection oldest;
+        while ((oldest = idle.peekLast()) != null && oldest.lastUsed() < cutoff) {
+            if (idle.removeLastOccurrence(oldest)) {
+                closeQuietly(oldest.connection());
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(
+                maxSize - permits.availablePermits(),
+                idle.size(),
+                borrows.get(),
+                waits.get(),
+                totalWaitNanos.get() / 1e6,
+                maxWaitNanos.get() / 1e6,
+                timeouts.get(),
+                opened.get());
+    }
+
+    /**
+     * Closes every idle connection and stops the eviction sweep. Connections still
+     * handed out are closed when they are returned, and later borrows fail.
+     */
+    public void shutdown() {
+        shutdown = true;
+        evictor.shutdownNow();
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.connection());
+        }
+    }
+
+    private Connection wrap(Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final List<Statement> statements = new ArrayList<>();
+            private boolean closed;
+            private boolean broken;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!closed) {
+                            closed = true;
+                            closeStatements();
+                            release(conn, broken);
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return closed || conn.isClosed();
+                    }
+                    case "unwrap", "isWrapperFor", "equals", "hashCode", "toString" -> {
+                        return invokeOn(conn, method, args);
+                    }
+                    default -> {
+                        if (closed) {
+                            throw new SQLException("Connection has been returned to the pool");
+                        }
+                        try {
+                            var result = invokeOn(conn, method, args);
+                            if (result instanceof Statement statement) {
+                                statements.removeIf(this::isClosed);
+                                statements.add(statement);
+                            }
+                            return result;
+                        } catch (SQLException e) {
+                            // 08xxx is the SQL state class for connection exceptions
+                            if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                                broken = true;
+                            }
+                            throw e;
+                        }
+                    }
+                }
+            }
+
+            private boolean isClosed(Statement statement) {
+                try {
+                    return statement.isClosed();
+                } catch (SQLException e) {
+                    return true;
+                }
+            }
+
+            /**
+             * Closes the statements the borrower left open, so they do not outlive the borrow on
+             * a connection that is about to be handed to someone else
+             */
+            private void closeStatements() {
+                for (var statement : statements) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        broken = true;
+                    }
+                }
+                statements.clear();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -12,6 +12,8 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final Properties PROPERTIES = new Properties();
+    private static final ConnectionPool POOL;
 
     /*
      * Load the database information for the db.properties file.
@@ -22,7 +24,7 @@ public class DatabaseManager {
                 if (propStream == null) {
                     throw new Exception("Unable to load db.properties");
                 }
-                Properties props = new Properties();
+                Properties props = PROPERTIES;
                 props.load(propStream);
                 DATABASE_NAME = props.getProperty("db.name");
                 USER = props.getProperty("db.user");
@@ -31,20 +33,34 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+
+                var poolSize = Integer.parseInt(props.getProperty("db.pool.size", "10"));
+                var timeoutMillis = Long.parseLong(props.getProperty("db.pool.timeoutMillis", "5000"));
+                var idleMillis = Long.parseLong(props.getProperty("db.pool.idleMillis", "60000"));
+                POOL = new ConnectionPool(CONNECTION_URL, USER, PASSWORD, DATABASE_NAME,
+                        poolSize, timeoutMillis, idleMillis);
+                Runtime.getRuntime().addShutdownHook(new Thread(POOL::shutdown));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    /**
+     * @return the db.properties value for the key, or the default when it is not set
+     */
+    static String property(String key, String defaultValue) {
+        return PROPERTIES.getProperty(key, defaultValue);
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws ResponseException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -53,28 +69,32 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection from the pool, with the catalog set to the database
+     * specified in db.properties. Connections to the database should be short-lived,
+     * and you must close the connection when you are done with it so it goes back to
+     * the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
-        }
+        return POOL.getConnection();
     }
 
-    static void executeUpdate(String statement, Object... params) throws ResponseException {
+    /**
+     * @return the connection pool's current counters
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return POOL.stats();
+    }
+
+    /**
+     * @return the number of rows the statement changed
+     */
+    static int executeUpdate(String statement, Object... params) throws ResponseException {
         try (var conn = getConnection()) {
             try (var ps = conn.prepareStatement(statement)) {
                 for (var i = 0; i < params.length; i++) {
@@ -83,13 +103,15 @@ public class DatabaseManager {
                         ps.setString(i + 1, p);
                     } else if (param instanceof Integer p) {
                         ps.setInt(i + 1, p);
+                    } else if (param instanceof byte[] p) {
+                        ps.setBytes(i + 1, p);
                     } else if (param == null) {
                         ps.setNull(i + 1, NULL);
                     } else {
-                        System.out.println(param);
+                        throw new SQLException("unsupported parameter type " + param.getClass().getName());
                     }
                 }
-                ps.executeUpdate();
+                return ps.executeUpdate();
             }
         } catch (SQLException | DataAccessException e) {
             throw new ResponseException(500, String.format("unable to update database: %s, %s", statement, e.getMessage()));
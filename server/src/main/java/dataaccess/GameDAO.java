@@ -3,8 +3,10 @@ package dataaccess;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.ListGameResponse;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface GameDAO {
     GameData createGame(String gameName, AuthData auth) throws ResponseException;
@@ -13,6 +15,11 @@ public interface GameDAO {
 
     Collection<GameData> listGames(AuthData auth) throws ResponseException;
 
+    /**
+     * Lists the names and players of the games a query selects, without loading their boards
+     */
+    List<ListGameResponse> listGameSummaries(GameListQuery query) throws ResponseException;
+
     void joinGame(AuthData auth, String playerColor, int gameID) throws Exception;
 }
 
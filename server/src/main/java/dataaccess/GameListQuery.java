@@ -0,0 +1,23 @@
+package dataaccess;
+
+/**
+ * Which games a listing returns, in gameID order
+ *
+ * @param afterGameID   only games with a larger gameID, so a page can continue where the last one ended
+ * @param limit         most games to return, or 0 for no limit
+ * @param openSeatsOnly only games with at least one empty seat
+ * @param player        only games this user is playing in, or null for any
+ */
+public record GameListQuery(int afterGameID, int limit, boolean openSeatsOnly, String player) {
+    public static final GameListQuery ALL = new GameListQuery(0, 0, false, null);
+
+    /**
+     * @return true if the game is part of this listing, ignoring paging
+     */
+    public boolean matches(String whiteUsername, String blackUsername) {
+        if (openSeatsOnly && whiteUsername != null && blackUsername != null) {
+            return false;
+        }
+        return player == null || player.equals(whiteUsername) || player.equals(blackUsername);
+    }
+}
@@ -4,6 +4,7 @@ import chess.ChessGame;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.ListGameResponse;
 
 import java.util.*;
 
@@ -30,6 +31,19 @@ public class MemoryGameDAO implements GameDAO {
         return games;
     }
 
+    @Override
+    public List<ListGameResponse> listGameSummaries(GameListQuery query) {
+        var result = new ArrayList<ListGameResponse>();
+        allGames.values().stream()
+                .filter(game -> game.gameID() > query.afterGameID()
+                        && query.matches(game.whiteUsername(), game.blackUsername()))
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .limit(query.limit() > 0 ? query.limit() : Long.MAX_VALUE)
+                .forEach(game -> result.add(new ListGameResponse(game.gameID(), game.whiteUsername(),
+                        game.blackUsername(), game.gameName())));
+        return result;
+    }
+
     @Override
     public void joinGame(AuthData auth, String playerColor, int gameID) throws Exception {
         var game = getGame(gameID);
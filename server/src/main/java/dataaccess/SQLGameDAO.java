@@ -1,21 +1,43 @@
 package dataaccess;
 
+import chess.ChessBoard;
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.JsonParser;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.JsonCodec;
+import model.ListGameResponse;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static java.sql.Types.NULL;
 
+/**
+ * Stores games in MySQL.
+ * <p>
+ * A game's {@code version} moves forward with every change to its board. Moves are appended to
+ * the {@code moves} table, one small row per move, while the full {@code state} is only
+ * rewritten as a snapshot every {@value #SNAPSHOT_INTERVAL} versions or when a change is not a
+ * move. Loading a game decodes its snapshot and replays the moves logged after
+ * {@code snapshotVersion}, so every version without a move row is covered by a snapshot.
+ */
 public class SQLGameDAO implements GameDAO {
+    private static final int SNAPSHOT_INTERVAL = 32;
 
     public SQLGameDAO() throws ResponseException {
         String[] createStatements = {
@@ -25,32 +47,157 @@ public class SQLGameDAO implements GameDAO {
               `whiteUsername` varchar(256),
               `blackUsername` varchar(256),
               `gameName` varchar(256) NOT NULL,
-              `json` TEXT NOT NULL,
+              `state` VARBINARY(64) NOT NULL,
+              `version` int NOT NULL DEFAULT 0,
+              `snapshotVersion` int NOT NULL DEFAULT 0,
               PRIMARY KEY (`gameID`)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+                """
+            CREATE TABLE IF NOT EXISTS  moves (
+              `gameID` int NOT NULL,
+              `version` int NOT NULL,
+              `move` smallint NOT NULL,
+              PRIMARY KEY (`gameID`, `version`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
             """
         };
         DatabaseManager.configureDatabase(createStatements);
+        migrateJsonGames();
+        if (!hasColumn("version")) {
+            executeUpdate("ALTER TABLE games ADD COLUMN `version` int NOT NULL DEFAULT 0");
+        }
+        if (!hasColumn("snapshotVersion")) {
+            executeUpdate("ALTER TABLE games ADD COLUMN `snapshotVersion` int NOT NULL DEFAULT 0");
+            executeUpdate("UPDATE games SET snapshotVersion = version");
+        }
+    }
+
+    /**
+     * A conditional state write for {@link #updateStates}
+     *
+     * @param state       encoded {@link ChessGameCodec} state after the last change
+     * @param fromVersion version the stored game must still have for the write to apply
+     * @param toVersion   version the game has after the write
+     * @param moves       the change that produced each version after fromVersion, in order: the
+     *                    move, or null for a change that was not a move
+     */
+    public record StateUpdate(byte[] state, int fromVersion, int toVersion, List<ChessMove> moves) {
+        /**
+         * @return this update followed by a later one that starts where it ends
+         */
+        public StateUpdate then(StateUpdate later) {
+            var combined = new ArrayList<ChessMove>(moves);
+            combined.addAll(later.moves());
+            return new StateUpdate(later.state(), fromVersion, later.toVersion(), combined);
+        }
+
+        /**
+         * @return true if the full state must be written: a change was not a move, or the
+         * update crosses a snapshot boundary
+         */
+        boolean needsSnapshot() {
+            return moves.contains(null) || toVersion / SNAPSHOT_INTERVAL != fromVersion / SNAPSHOT_INTERVAL;
+        }
+    }
+
+    /**
+     * Moves tables created before the binary game encoding off the old `json` column:
+     * adds `state`, re-encodes every row from its JSON, then drops `json`. Rows are rewritten on
+     * the connection that reads them, so the migration only ever holds one pooled connection.
+     */
+    private void migrateJsonGames() throws ResponseException {
+        if (!hasColumn("json")) {
+            return;
+        }
+        if (!hasColumn("state")) {
+            executeUpdate("ALTER TABLE games ADD COLUMN `state` VARBINARY(64) NULL");
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            var statement = "SELECT gameID, json FROM games WHERE state IS NULL";
+            try (var ps = conn.prepareStatement(statement); var rs = ps.executeQuery();
+                 var update = conn.prepareStatement("UPDATE games SET state = ? WHERE gameID = ?")) {
+                while (rs.next()) {
+                    update.setBytes(1, ChessGameCodec.encode(readLegacyGame(rs.getString("json"))));
+                    update.setInt(2, rs.getInt("gameID"));
+                    update.executeUpdate();
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to migrate games: %s", e.getMessage()));
+        }
+        executeUpdate("ALTER TABLE games DROP COLUMN `json`, MODIFY `state` VARBINARY(64) NOT NULL");
+    }
+
+    private boolean hasColumn(String column) throws ResponseException {
+        try (var conn = DatabaseManager.getConnection()) {
+            var statement = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() " +
+                    "AND TABLE_NAME = 'games' AND COLUMN_NAME = ?";
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setString(1, column);
+                try (var rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Reads a game stored as Gson JSON, including the original layout where the board
+     * was a 9x9 `squares` grid of pieces.
+     */
+    private ChessGame readLegacyGame(String json) {
+        var root = JsonParser.parseString(json).getAsJsonObject();
+        var boardJson = root.getAsJsonObject("myBoard");
+        if (boardJson == null || !boardJson.has("squares")) {
+            return JsonCodec.GSON.fromJson(json, ChessGame.class);
+        }
+        var board = new ChessBoard();
+        var rows = boardJson.getAsJsonArray("squares");
+        for (int row = 1; row < rows.size(); row++) {
+            var cols = rows.get(row).getAsJsonArray();
+            for (int col = 1; col < cols.size(); col++) {
+                if (cols.get(col).isJsonObject()) {
+                    var piece = JsonCodec.GSON.fromJson(cols.get(col), ChessPiece.class);
+                    board.addPiece(new ChessPosition(row, col), piece);
+                }
+            }
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+        if (root.has("teamTurn")) {
+            game.setTeamTurn(ChessGame.TeamColor.valueOf(root.get("teamTurn").getAsString()));
+        }
+        if (root.has("gameOver") && root.get("gameOver").getAsBoolean()) {
+            game.resignGame();
+        }
+        return game;
     }
 
     @Override
     public GameData createGame(String gameName, AuthData auth) throws ResponseException {
-        var statement = "INSERT INTO games (whiteUsername, blackUsername, gameName, json) VALUES (?, ?, ?, ?)";
+        var statement = "INSERT INTO games (whiteUsername, blackUsername, gameName, state) VALUES (?, ?, ?, ?)";
         var chessGame = new ChessGame();
-        var json = new Gson().toJson(chessGame);
-        var gameID = executeUpdate(statement, null, null, gameName, json);
+        var gameID = executeUpdate(statement, null, null, gameName, ChessGameCodec.encode(chessGame));
         return new GameData(gameID, null, null, gameName, chessGame);
     }
 
     @Override
     public GameData getGame(int gameID) throws ResponseException {
+        var game = getVersionedGame(gameID);
+        return game == null ? null : game.game();
+    }
+
+    public VersionedGame getVersionedGame(int gameID) throws ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT * FROM games WHERE gameID=?";
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return readGame(rs);
+                        return new VersionedGame(readGame(conn, rs), rs.getInt("version"));
                     }
                 }
             }
@@ -60,16 +207,71 @@ public class SQLGameDAO implements GameDAO {
         return null;
     }
 
-    private GameData readGame(ResultSet rs) throws SQLException {
+    /**
+     * Reads a game's players and version without loading its board, to check a cached copy
+     *
+     * @return the game with a null board, or null if it does not exist
+     */
+    VersionedGame getGameHeader(int gameID) throws ResponseException {
+        try (var conn = DatabaseManager.getConnection()) {
+            var statement = "SELECT gameName, whiteUsername, blackUsername, version FROM games WHERE gameID=?";
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setInt(1, gameID);
+                try (var rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        var game = new GameData(gameID, rs.getString("whiteUsername"), rs.getString("blackUsername"),
+                                rs.getString("gameName"), null);
+                        return new VersionedGame(game, rs.getInt("version"));
+                    }
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
+        }
+        return null;
+    }
+
+    /**
+     * Decodes a game's last snapshot and replays any moves logged since. The moves were checked
+     * when they were made, so they are played without validation and the game's status is
+     * settled once at the end, ending the game if the last move mated.
+     */
+    private GameData readGame(Connection conn, ResultSet rs) throws SQLException {
         var gameID = rs.getInt("gameID");
         var whiteUsername = rs.getString("whiteUsername");
         var blackUsername = rs.getString("blackUsername");
         var gameName = rs.getString("gameName");
-        var json = rs.getString("json");
-        var chessGame = new Gson().fromJson(json, ChessGame.class);
+        var chessGame = ChessGameCodec.decode(rs.getBytes("state"));
+        int snapshotVersion = rs.getInt("snapshotVersion");
+        int version = rs.getInt("version");
+        if (version > snapshotVersion) {
+            for (var move : readMoves(conn, gameID, snapshotVersion, version)) {
+                chessGame.replayMove(move);
+            }
+            chessGame.getStatus(chessGame.getTeamTurn());
+        }
         return new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame);
     }
 
+    /**
+     * Reads the logged moves that produced versions after {@code afterVersion} up to {@code upToVersion}
+     */
+    private List<ChessMove> readMoves(Connection conn, int gameID, int afterVersion, int upToVersion) throws SQLException {
+        var statement = "SELECT move FROM moves WHERE gameID = ? AND version > ? AND version <= ? ORDER BY version";
+        var moves = new ArrayList<ChessMove>();
+        try (var ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, gameID);
+            ps.setInt(2, afterVersion);
+            ps.setInt(3, upToVersion);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    moves.add(ChessGameCodec.decodeMove(rs.getInt("move")));
+                }
+            }
+        }
+        return moves;
+    }
+
     @Override
     public Collection<GameData> listGames(AuthData auth) throws ResponseException {
         var result = new ArrayList<GameData>();
@@ -78,7 +280,7 @@ public class SQLGameDAO implements GameDAO {
             try (var ps = conn.prepareStatement(statement)) {
                 try (var rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        result.add(readGame(rs));
+                        result.add(readGame(conn, rs));
                     }
                 }
             }
@@ -88,55 +290,198 @@ public class SQLGameDAO implements GameDAO {
         return result;
     }
 
+    /**
+     * Selects only the listing columns, so the stored boards are never read or decoded
+     */
+    @Override
+    public List<ListGameResponse> listGameSummaries(GameListQuery query) throws ResponseException {
+        var statement = new StringBuilder(
+                "SELECT gameID, whiteUsername, blackUsername, gameName FROM games WHERE gameID > ?");
+        if (query.openSeatsOnly()) {
+            statement.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (query.player() != null) {
+            statement.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+        }
+        statement.append(" ORDER BY gameID");
+        if (query.limit() > 0) {
+            statement.append(" LIMIT ?");
+        }
+        var result = new ArrayList<ListGameResponse>();
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement.toString())) {
+                int index = 1;
+                ps.setInt(index++, query.afterGameID());
+                if (query.player() != null) {
+                    ps.setString(index++, query.player());
+                    ps.setString(index++, query.player());
+                }
+                if (query.limit() > 0) {
+                    ps.setInt(index, query.limit());
+                }
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(new ListGameResponse(rs.getInt("gameID"), rs.getString("whiteUsername"),
+                                rs.getString("blackUsername"), rs.getString("gameName")));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
+        }
+        return result;
+    }
+
+    /**
+     * Claims a seat with one conditional update, so of two players racing for the same seat
+     * exactly one gets it. The game is only looked up when the claim fails, to pick the error.
+     */
     @Override
     public void joinGame(AuthData auth, String playerColor, int gameID) throws Exception {
-        var game = getGame(gameID);
-        if (game != null) {
-            if (Objects.equals(playerColor, "BLACK") && game.blackUsername() == null) {
-                var statement = "UPDATE games SET blackUsername = ? WHERE gameID = ?";
-                DatabaseManager.executeUpdate(statement, auth.username(), gameID);
-            } else if (Objects.equals(playerColor, "WHITE") && game.whiteUsername() == null) {
-                var statement = "UPDATE games SET whiteUsername = ? WHERE gameID = ?";
-                DatabaseManager.executeUpdate(statement, auth.username(), gameID);
-            } else {
-                throw new ResponseException(403, "Error: position already taken");
+        var column = seatColumn(playerColor);
+        if (column != null) {
+            var statement = "UPDATE games SET " + column + " = ? WHERE gameID = ? AND " + column + " IS NULL";
+            if (DatabaseManager.executeUpdate(statement, auth.username(), gameID) == 1) {
+                return;
             }
+        }
+        if (gameExists(gameID)) {
+            throw new ResponseException(403, "Error: position already taken");
         } else {
             throw new ResponseException(400, "Error: bad request");
         }
     }
 
+    /**
+     * Empties a seat with one conditional update. Leaving a game that does not exist does nothing.
+     */
     public void leaveGame(String playerColor, int gameID) throws ResponseException {
-        var game = getGame(gameID);
-        if (game != null) {
-            if (Objects.equals(playerColor, "BLACK") && game.blackUsername() != null) {
-                var statement = "UPDATE games SET blackUsername = null WHERE gameID = ?";
-                DatabaseManager.executeUpdate(statement, gameID);
+        var column = seatColumn(playerColor);
+        if (column != null) {
+            var statement = "UPDATE games SET " + column + " = null WHERE gameID = ? AND " + column + " IS NOT NULL";
+            if (DatabaseManager.executeUpdate(statement, gameID) == 1) {
+                return;
             }
-            if (Objects.equals(playerColor, "WHITE") && game.whiteUsername() != null) {
-                var statement = "UPDATE games SET whiteUsername = null WHERE gameID = ?";
-                DatabaseManager.executeUpdate(statement, gameID);
-            } else {
-                throw new ResponseException(403, "Error: User is not a player in this game");
+        }
+        if (gameExists(gameID)) {
+            throw new ResponseException(403, "Error: User is not a player in this game");
+        }
+    }
+
+    /**
+     * @return the column holding the player of the given color, or null if it is not a color
+     */
+    private static String seatColumn(String playerColor) {
+        if (Objects.equals(playerColor, "WHITE")) {
+            return "whiteUsername";
+        } else if (Objects.equals(playerColor, "BLACK")) {
+            return "blackUsername";
+        }
+        return null;
+    }
+
+    private boolean gameExists(int gameID) throws ResponseException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement("SELECT 1 FROM games WHERE gameID = ?")) {
+                ps.setInt(1, gameID);
+                try (var rs = ps.executeQuery()) {
+                    return rs.next();
+                }
             }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
         }
     }
 
+    /**
+     * Overwrites a game's state whatever its version, moving the version forward. MySQL applies
+     * the assignments left to right, so snapshotVersion takes the already incremented version.
+     */
     public void updateGame(int gameID, ChessGame chessGame) throws ResponseException {
-        var game = getGame(gameID);
-        if (game != null) {
-            var json = new Gson().toJson(chessGame);
-            var statement = "UPDATE games SET json = ? where gameID = ?";
-            DatabaseManager.executeUpdate(statement, json, gameID);
-
-        } else {
+        var statement = "UPDATE games SET state = ?, version = version + 1, snapshotVersion = version WHERE gameID = ?";
+        if (DatabaseManager.executeUpdate(statement, ChessGameCodec.encode(chessGame), gameID) == 0) {
             throw new ResponseException(400, "Error: game does not exist");
         }
     }
 
+    /**
+     * Writes many game updates in one transaction. Each applies only if the game is still at the
+     * update's fromVersion: its version is moved forward, its moves are appended to the log, and
+     * its full state is written only when {@link StateUpdate#needsSnapshot()} says so.
+     *
+     * @return the gameIDs whose update did not apply because the game had changed or was gone
+     */
+    public Set<Integer> updateStates(Map<Integer, StateUpdate> states) throws ResponseException {
+        var advance = "UPDATE games SET version = ? WHERE gameID = ? AND version = ?";
+        var snapshot = "UPDATE games SET version = ?, snapshotVersion = ?, state = ? WHERE gameID = ? AND version = ?";
+        var append = "INSERT INTO moves (gameID, version, move) VALUES (?, ?, ?)";
+        var conflicts = new HashSet<Integer>();
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            var advanced = new ArrayList<Integer>();
+            var snapshotted = new ArrayList<Integer>();
+            try (var advancePs = conn.prepareStatement(advance); var snapshotPs = conn.prepareStatement(snapshot)) {
+                for (var entry : states.entrySet()) {
+                    var update = entry.getValue();
+                    if (update.needsSnapshot()) {
+                        snapshotPs.setInt(1, update.toVersion());
+                        snapshotPs.setInt(2, update.toVersion());
+                        snapshotPs.setBytes(3, update.state());
+                        snapshotPs.setInt(4, entry.getKey());
+                        snapshotPs.setInt(5, update.fromVersion());
+                        snapshotPs.addBatch();
+                        snapshotted.add(entry.getKey());
+                    } else {
+                        advancePs.setInt(1, update.toVersion());
+                        advancePs.setInt(2, entry.getKey());
+                        advancePs.setInt(3, update.fromVersion());
+                        advancePs.addBatch();
+                        advanced.add(entry.getKey());
+                    }
+                }
+                collectConflicts(advanced.isEmpty() ? new int[0] : advancePs.executeBatch(), advanced, conflicts);
+                collectConflicts(snapshotted.isEmpty() ? new int[0] : snapshotPs.executeBatch(), snapshotted, conflicts);
+            }
+            try (var ps = conn.prepareStatement(append)) {
+                boolean any = false;
+                for (var entry : states.entrySet()) {
+                    if (conflicts.contains(entry.getKey())) {
+                        continue;
+                    }
+                    var update = entry.getValue();
+                    for (int i = 0; i < update.moves().size(); i++) {
+                        var move = update.moves().get(i);
+                        if (move != null) {
+                            ps.setInt(1, entry.getKey());
+                            ps.setInt(2, update.fromVersion() + 1 + i);
+                            ps.setInt(3, ChessGameCodec.encodeMove(move));
+                            ps.addBatch();
+                            any = true;
+                        }
+                    }
+                }
+                if (any) {
+                    ps.executeBatch();
+                }
+            }
+            conn.commit();
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("unable to update database: %s", e.getMessage()));
+        }
+        return conflicts;
+    }
+
+    private static void collectConflicts(int[] counts, List<Integer> gameIDs, Set<Integer> conflicts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicts.add(gameIDs.get(i));
+            }
+        }
+    }
+
     public void clear() throws ResponseException {
-        var statement = "TRUNCATE games";
-        executeUpdate(statement);
+        executeUpdate("TRUNCATE moves");
+        executeUpdate("TRUNCATE games");
     }
 
     private int executeUpdate(String statement, Object... params) throws ResponseException {
@@ -148,8 +493,8 @@ public class SQLGameDAO implements GameDAO {
                         ps.setString(i + 1, p);
                     } else if (param instanceof Integer p) {
                         ps.setInt(i + 1, p);
-                    } else if (param instanceof ChessGame p) {
-                        ps.setString(i + 1, p.toString());
+                    } else if (param instanceof byte[] p) {
+                        ps.setBytes(i + 1, p);
                     } else if (param == null) {
                         ps.setNull(i + 1, NULL);
                     }
@@ -0,0 +1,10 @@
+package dataaccess;
+
+import model.GameData;
+
+/**
+ * A game together with the version of its board. Every saved change to the board moves the
+ * version forward, so a writer can tell whether the game changed since it was read.
+ */
+public record VersionedGame(GameData game, int version) {
+}
@@ -0,0 +1,493 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import exception.ResponseException;
+import model.AuthData;
+import model.GameData;
+import model.ListGameResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps active games in memory in front of a {@link SQLGameDAO}.
+ * <p>
+ * Once a game has been read it is served from memory, and the cached {@link GameData} is the
+ * authoritative copy. Board updates are encoded straight away but written to MySQL later: a
+ * background task flushes every pending state in one batch each {@code flushMillis}. That window
+ * is how much play a crash can lose. A window of 0 writes every update through immediately.
+ * Seat changes and new games are rare, so they are written through and then cached.
+ * {@link #close()} flushes whatever is still pending. If a background flush fails, the batch is
+ * kept for the next one and further updates are refused with a 500 until a flush succeeds.
+ * <p>
+ * A cached game with nothing waiting to be written is trusted for {@code ttlMillis} after it was
+ * loaded or last checked; the next read after that compares it with the database, reloading it if
+ * another server has moved its version on and picking up any seat changes. Games with nothing
+ * waiting are dropped once unread for {@code idleMillis}, and the least recently read go first
+ * whenever more than {@code maxSize} are cached.
+ * <p>
+ * Every board update moves the cached version forward by one, and a flush only writes a game
+ * if MySQL still holds the version the pending updates started from. If another server wrote
+ * the game first, the pending updates are dropped along with the cached copy, and the next read
+ * picks up the other server's state. A write-through update reports this to its caller by
+ * returning null; the background flush passes the gameID to the {@link #onConflict} listener so
+ * the players can be told their moves were lost and sent the stored game.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+    private final SQLGameDAO store;
+    private final int maxSize;
+    private final long idleNanos;
+    private final long ttlNanos;
+    private final Map<Integer, CachedGame> games = new ConcurrentHashMap<>();
+    private final Map<Integer, SQLGameDAO.StateUpdate> pending = new ConcurrentHashMap<>();
+    /**
+     * Games whose update has been taken out of {@link #pending} by a flush still writing it
+     */
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile ResponseException flushFailure;
+    private volatile IntConsumer conflictListener = gameID -> {
+    };
+
+    /**
+     * A cached game, with when it was last read and when it was last checked against the database
+     */
+    private static final class CachedGame {
+        private final VersionedGame game;
+        private final long checkedAt;
+        private volatile long lastUsed;
+
+        private CachedGame(VersionedGame game, long checkedAt) {
+            this.game = game;
+            this.checkedAt = checkedAt;
+            this.lastUsed = checkedAt;
+        }
+    }
+
+    private record EvictionCandidate(int gameID, CachedGame cached, long lastUsed) {
+    }
+
+    /**
+     * Uses the durability window from the optional db.writeBehindMillis property, and the cache
+     * bounds from db.gameCacheSize, db.gameCacheIdleMillis and db.gameCacheTtlMillis
+     */
+    public WriteBehindGameDAO() throws ResponseException {
+        this(new SQLGameDAO(), Long.parseLong(DatabaseManager.property("db.writeBehindMillis", "250")));
+    }
+
+    public WriteBehindGameDAO(SQLGameDAO store, long flushMillis) {
+        this(store, flushMillis,
+                Integer.parseInt(DatabaseManager.property("db.gameCacheSize", "1000")),
+                Long.parseLong(DatabaseManager.property("db.gameCacheIdleMillis", "300000")),
+                Long.parseLong(DatabaseManager.property("db.gameCacheTtlMillis", "1000")));
+    }
+
+    public WriteBehindGameDAO(SQLGameDAO store, long flushMillis, int maxSize, long idleMillis, long ttlMillis) {
+        this.store = store;
+        this.maxSize = maxSize;
+        this.idleNanos = idleMillis * 1_000_000;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "game-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushInBackground, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Sets what to call with the gameID of each game whose pending updates the background flush
+     * dropped because another writer got there first. It runs on the flush thread, so it should
+     * hand the work off rather than do it there.
+     */
+    public void onConflict(IntConsumer listener) {
+        conflictListener = listener;
+    }
+
+    @Override
+    public GameData createGame(String gameName, AuthData auth) throws ResponseException {
+        var game = store.createGame(gameName, auth);
+        games.put(game.gameID(), new CachedGame(new VersionedGame(game, 0), System.nanoTime()));
+        evictIfFull();
+        return game;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws ResponseException {
+        var game = getVersionedGame(gameID);
+        return game == null ? null : game.game();
+    }
+
+    public VersionedGame getVersionedGame(int gameID) throws ResponseException {
+        var cached = games.get(gameID);
+        if (cached != null) {
+            long now = System.nanoTime();
+            cached.lastUsed = now;
+            if (now - cached.checkedAt < ttlNanos || isDirty(gameID)) {
+                return cached.game;
+            }
+            return revalidate(gameID, cached);
+        }
+        var game = store.getVersionedGame(gameID);
+        if (game == null) {
+            return null;
+        }
+        var raced = games.putIfAbsent(gameID, new CachedGame(game, System.nanoTime()));
+        if (raced != null) {
+            return raced.game;
+        }
+        evictIfFull();
+        return game;
+    }
+
+    /**
+     * Compares a cached game whose TTL has passed with the database. A newer stored version means
+     * another server changed the board, so the game is loaded again; otherwise the cached board
+     * is kept and only the players are refreshed.
+     */
+    private VersionedGame revalidate(int gameID, CachedGame cached) throws ResponseException {
+        var stored = store.getGameHeader(gameID);
+        VersionedGame fresh = null;
+        if (stored != null && stored.version() > cached.game.version()) {
+            fresh = store.getVersionedGame(gameID);
+        } else if (stored != null) {
+            var game = cached.game.game();
+            fresh = new VersionedGame(new GameData(gameID, stored.game().whiteUsername(),
+                    stored.game().blackUsername(), game.gameName(), game.game()), cached.game.version());
+        }
+        var refreshed = fresh == null ? null : new CachedGame(fresh, System.nanoTime());
+        var current = games.computeIfPresent(gameID,
+                (id, latest) -> latest == cached && !isDirty(id) ? refreshed : latest);
+        if (current == null) {
+            return fresh;
+        }
+        return current.game;
+    }
+
+    /**
+     * @return true if the game has an update that has not yet reached the database
+     */
+    private boolean isDirty(int gameID) {
+        return pending.containsKey(gameID) || inFlight.contains(gameID);
+    }
+
+    /**
+     * Lists games from the database, substituting the in-memory copy of any cached game
+     */
+    @Override
+    public Collection<GameData> listGames(AuthData auth) throws ResponseException {
+        var result = new ArrayList<GameData>();
+        for (var game : store.listGames(auth)) {
+            var cached = games.get(game.gameID());
+            result.add(cached != null ? cached.game.game() : game);
+        }
+        return result;
+    }
+
+    /**
+     * Lists straight from the database; seats are written through, so it never lags the cache
+     */
+    @Override
+    public List<ListGameResponse> listGameSummaries(GameListQuery query) throws ResponseException {
+        return store.listGameSummaries(query);
+    }
+
+    @Override
+    public void joinGame(AuthData auth, String playerColor, int gameID) throws Exception {
+        store.joinGame(auth, playerColor, gameID);
+        setSeat(gameID, playerColor, auth.username());
+    }
+
+    public void leaveGame(String playerColor, int gameID) throws ResponseException {
+        try {
+            store.leaveGame(playerColor, gameID);
+        } catch (ResponseException e) {
+            refreshSeats(gameID);
+            throw e;
+        }
+        setSeat(gameID, playerColor, null);
+    }
+
+    /**
+     * Applies a seat change the database has already accepted to the cached copy of a game
+     */
+    private void setSeat(int gameID, String playerColor, String username) {
+        games.computeIfPresent(gameID, (id, cached) -> {
+            var game = cached.game.game();
+            var seated = "WHITE".equals(playerColor)
+                    ? new GameData(id, username, game.blackUsername(), game.gameName(), game.game())
+                    : new GameData(id, game.whiteUsername(), username, game.gameName(), game.game());
+            return new CachedGame(new VersionedGame(seated, cached.game.version()), cached.checkedAt);
+        });
+    }
+
+    /**
+     * Re-reads a cached game's players after a seat change, keeping the cached board
+     */
+    private void refreshSeats(int gameID) throws ResponseException {
+        if (!games.containsKey(gameID)) {
+            return;
+        }
+        var stored = store.getGame(gameID);
+        if (stored == null) {
+            games.remove(gameID);
+            return;
+        }
+        games.computeIfPresent(gameID, (id, cached) -> new CachedGame(new VersionedGame(new GameData(id,
+                stored.whiteUsername(), stored.blackUsername(), stored.gameName(), cached.game.game().game()),
+                cached.game.version()), cached.checkedAt));
+    }
+
+    /**
+     * Records the new state of a game on top of the cached version. It is visible to readers at
+     * once and reaches the database with the next flush.
+     *
+     * @throws ResponseException 409 if another update changed the game between the read and the
+     *                           write, or a write-through found another server had written it
+     */
+    public void updateGame(int gameID, ChessGame chessGame) throws ResponseException {
+        var game = getVersionedGame(gameID);
+        if (game == null) {
+            throw new ResponseException(400, "Error: game does not exist");
+        }
+        if (updateGame(gameID, chessGame, game.version()) == null) {
+            throw new ResponseException(409, "Error: game was changed by another update");
+        }
+    }
+
+    /**
+     * Records a change that was not a single move, see {@link #updateGame(int, ChessGame, int, ChessMove)}
+     */
+    public VersionedGame updateGame(int gameID, ChessGame chessGame, int expectedVersion) throws ResponseException {
+        return updateGame(gameID, chessGame, expectedVersion, null);
+    }
+
+    /**
+     * Records the new state of a game if it is still at the version it was read at
+     *
+     * @param move the move that produced the new state, to be appended to the move log, or null
+     *             if the change was not a single move and the full state must be written
+     * @return the updated game, or null if the game has moved past expectedVersion, is no longer
+     * cached, or was found to have been changed by another server when written through
+     */
+    public VersionedGame updateGame(int gameID, ChessGame chessGame, int expectedVersion, ChessMove move)
+            throws ResponseException {
+        var failure = flushFailure;
+        if (failure != null) {
+            throw new ResponseException(500, "Error: unable to save games: " + failure.getMessage());
+        }
+        var state = ChessGameCodec.encode(chessGame);
+        var change = new SQLGameDAO.StateUpdate(state, expectedVersion, expectedVersion + 1,
+                Collections.singletonList(move));
+        var updated = games.computeIfPresent(gameID, (id, cached) -> {
+            if (cached.game.version() != expectedVersion) {
+                return cached;
+            }
+            var game = cached.game.game();
+            pending.merge(id, change, SQLGameDAO.StateUpdate::then);
+            var changed = new CachedGame(new VersionedGame(new GameData(id, game.whiteUsername(),
+                    game.blackUsername(), game.gameName(), chessGame), expectedVersion + 1), cached.checkedAt);
+            changed.lastUsed = System.nanoTime();
+            return changed;
+        });
+        if (updated == null || updated.game.version() != expectedVersion + 1
+                || updated.game.game().game() != chessGame) {
+            return null;
+        }
+        if (flusher == null && writeThrough(gameID)) {
+            return null;
+        }
+        return updated.game;
+    }
+
+    /**
+     * Writes one game's update straight to the database. If the write fails, the update is
+     * dropped along with the cached copy holding it, so no reader sees a state that was never
+     * saved and the next read goes back to the database.
+     *
+     * @return whether another server had written the game first
+     */
+    private boolean writeThrough(int gameID) throws ResponseException {
+        try {
+            return flush(List.of(gameID)).contains(gameID);
+        } catch (ResponseException e) {
+            synchronized (flushLock) {
+                pending.remove(gameID);
+                games.remove(gameID);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes every pending game update to the database in one batch: moves are appended to the
+     * log, and the full state is only written when a snapshot is due. A failed batch is put
+     * back so the next flush retries it, merged under any newer state that arrived meanwhile.
+     * A game whose stored version no longer matches loses its pending state and cached copy.
+     *
+     * @return the gameIDs whose pending state was dropped because another writer got there first
+     */
+    public Set<Integer> flush() throws ResponseException {
+        return flush(pending.keySet());
+    }
+
+    /**
+     * Flushes just the given games, so a write-through only writes, and only hears about
+     * conflicts on, the game it changed
+     */
+    private Set<Integer> flush(Collection<Integer> gameIDs) throws ResponseException {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return Set.of();
+            }
+            var batch = new HashMap<Integer, SQLGameDAO.StateUpdate>();
+            for (var gameID : gameIDs) {
+                inFlight.add(gameID);
+                var update = pending.remove(gameID);
+                if (update != null) {
+                    batch.put(gameID, update);
+                } else {
+                    inFlight.remove(gameID);
+                }
+            }
+            if (batch.isEmpty()) {
+                return Set.of();
+            }
+            Set<Integer> conflicts;
+            try {
+                conflicts = store.updateStates(batch);
+            } catch (ResponseException e) {
+                batch.forEach((gameID, failed) -> pending.merge(gameID, failed, (newer, older) -> older.then(newer)));
+                throw e;
+            } finally {
+                inFlight.clear();
+            }
+            flushFailure = null;
+            for (var gameID : conflicts) {
+                games.remove(gameID);
+                pending.remove(gameID);
+            }
+            for (var gameID : batch.keySet()) {
+                var cached = games.get(gameID);
+                if (cached != null && cached.game.game().game().getGameOver()) {
+                    evict(gameID, cached);
+                }
+            }
+            return conflicts;
+        }
+    }
+
+    /**
+     * Flushes from the background task, handing any conflicts to the listener and keeping a
+     * failure to refuse updates with until a flush succeeds, then sweeps idle games out of the
+     * cache
+     */
+    private void flushInBackground() {
+        try {
+            var listener = conflictListener;
+            for (var gameID : flush()) {
+                listener.accept(gameID);
+            }
+        } catch (ResponseException e) {
+            flushFailure = e;
+        }
+        evictIdle();
+    }
+
+    private void evictIfFull() {
+        if (games.size() > maxSize) {
+            evictIdle();
+        }
+    }
+
+    /**
+     * Drops cached games that have not been read for idleMillis, then, while more than maxSize
+     * are cached, the least recently read. Games with an update not yet in the database stay.
+     */
+    private void evictIdle() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            var candidates = new ArrayList<EvictionCandidate>();
+            for (var entry : games.entrySet()) {
+                var cached = entry.getValue();
+                long lastUsed = cached.lastUsed;
+                if (now - lastUsed > idleNanos) {
+                    evict(entry.getKey(), cached);
+                } else {
+                    candidates.add(new EvictionCandidate(entry.getKey(), cached, lastUsed));
+                }
+            }
+            int excess = games.size() - maxSize;
+            if (excess > 0) {
+                candidates.sort(Comparator.comparingLong(EvictionCandidate::lastUsed));
+                for (int i = 0; i < candidates.size() && excess > 0; i++) {
+                    if (evict(candidates.get(i).gameID(), candidates.get(i).cached())) {
+                        excess--;
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Removes a game from the cache if it is still the given entry and nothing about it is
+     * waiting to be written
+     *
+     * @return true if the game was removed
+     */
+    private boolean evict(int gameID, CachedGame cached) {
+        var removed = new boolean[1];
+        games.computeIfPresent(gameID, (id, current) -> {
+            if (current == cached && !isDirty(id)) {
+                removed[0] = true;
+                return null;
+            }
+            return current;
+        });
+        return removed[0];
+    }
+
+    public void clear() throws ResponseException {
+        synchronized (flushLock) {
+            pending.clear();
+            games.clear();
+            store.clear();
+        }
+    }
+
+    /**
+     * Stops the background flush and writes any pending states
+     */
+    @Override
+    public void close() throws ResponseException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+}
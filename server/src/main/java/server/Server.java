@@ -1,20 +1,59 @@
 package server;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import dataaccess.CachedAuthDAO;
+import dataaccess.ConnectionPool;
+import dataaccess.DatabaseManager;
+import dataaccess.GameListQuery;
 import exception.ResponseException;
 import model.*;
+import server.websocket.ConnectionManager;
 import server.websocket.WebSocketHandler;
 import service.GameService;
 import spark.*;
 import service.UserService;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class Server {
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+    private static final int LIST_PAGE_SIZE = 500;
+    private static final int MAX_LIST_LIMIT = 1000;
 
     private UserService userService;
     private GameService gameService;
     private WebSocketHandler webSocketHandler;
+    private final boolean virtualThreads;
+
+    /**
+     * Counters reported by GET /stats
+     */
+    private record ServerStats(ConnectionPool.Stats pool, CachedAuthDAO.Stats authCache,
+                               ConnectionManager.SendStats websocket) {
+    }
+
+    public Server() {
+        this(false);
+    }
+
+    /**
+     * @param virtualThreads True to run HTTP and websocket handlers on virtual threads instead of
+     *                       Jetty's bounded pool. Database concurrency stays bounded by db.pool.size.
+     */
+    public Server(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
 
     private void initializeServices() throws ResponseException {
         gameService = new GameService();
@@ -29,6 +68,8 @@ public class Server {
 
 
     public int run(int desiredPort) {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                virtualThreads ? new EmbeddedJettyFactory(new VirtualThreadJettyFactory()) : new EmbeddedJettyFactory());
         Spark.port(desiredPort);
 
         Spark.staticFiles.location("web");
@@ -49,6 +90,7 @@ public class Server {
         Spark.get("/game", this::listGames);
         Spark.post("/game", this::createGame);
         Spark.put("/game", this::joinGame);
+        Spark.get("/stats", this::stats);
         Spark.exception(ResponseException.class, this::exceptionHandler);
 
 
@@ -69,12 +111,12 @@ public class Server {
 
     private Object joinGame(Request request, Response response) throws Exception {
         AuthData auth = headerHandler(request);
-        var gameData = new Gson().fromJson(request.body(), JoinGameRequest.class);
+        var gameData = JsonCodec.GSON.fromJson(request.body(), JoinGameRequest.class);
         var game = gameService.joinGame(auth, gameData.playerColor(), gameData.gameID(), userService);
 
         response.status(200);
         response.type("application/json");
-        return new Gson().toJson(game);
+        return JsonCodec.GSON.toJson(game);
     }
 
     private AuthData headerHandler(Request request) {
@@ -84,7 +126,7 @@ public class Server {
 
     private Object createGame(Request request, Response response) throws Exception {
         AuthData auth = headerHandler(request);
-        var gameName = new Gson().fromJson(request.body(), CreateGameRequest.class);
+        var gameName = JsonCodec.GSON.fromJson(request.body(), CreateGameRequest.class);
         var result = gameService.createGame(gameName.gameName(), auth, userService);
         response.status(200);
         String jsonResponse = String.format("{ \"gameID\":\"%s\" }", result.gameID());
@@ -92,23 +134,105 @@ public class Server {
         return jsonResponse;
     }
 
+    /**
+     * Lists games without loading their boards.
+     * <p>
+     * With a limit, one page of at most that many games is returned, plus a nextCursor to pass
+     * back as cursor for the following page when the page was full. Without one, every game is
+     * listed, read from the database {@value #LIST_PAGE_SIZE} at a time. The optional
+     * open=true and player=name parameters narrow the list to games with an empty seat or games
+     * the named user is in.
+     * <p>
+     * The first page is read before anything is sent, and a response that fits in one page is
+     * buffered, so a failed read still gets its own status. A longer list is streamed as its
+     * pages are read; if a later page fails, the connection is aborted so the client sees a
+     * truncated response instead of a short list that looks complete.
+     */
     private Object listGames(Request request, Response response) throws Exception {
         var auth = headerHandler(request);
-        var result = gameService.listGames(auth, userService);
+        int cursor = intParam(request, "cursor");
+        int limit = Math.min(intParam(request, "limit"), MAX_LIST_LIMIT);
+        boolean open = Boolean.parseBoolean(request.queryParams("open"));
+        String player = request.queryParams("player");
+        int pageSize = limit > 0 ? limit : LIST_PAGE_SIZE;
+
+        var page = gameService.listGameSummaries(auth, new GameListQuery(cursor, pageSize, open, player), userService);
+        response.type("application/json");
+        if (limit > 0 || page.size() < pageSize) {
+            var body = new StringWriter();
+            var out = JsonCodec.GSON.newJsonWriter(body);
+            out.beginObject();
+            out.name("games").beginArray();
+            writeGames(out, page);
+            out.endArray();
+            if (limit > 0 && page.size() == pageSize) {
+                out.name("nextCursor").value(String.valueOf(lastGameID(page)));
+            }
+            out.endObject();
+            out.flush();
+            response.status(200);
+            return body.toString();
+        }
+
         response.status(200);
-        return listGameFormatter(result);
+        var out = JsonCodec.GSON.newJsonWriter(
+                new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            out.beginObject();
+            out.name("games").beginArray();
+            writeGames(out, page);
+            while (page.size() == pageSize) {
+                var query = new GameListQuery(lastGameID(page), pageSize, open, player);
+                page = gameService.listGameSummaries(auth, query, userService);
+                writeGames(out, page);
+            }
+            out.endArray();
+            out.endObject();
+            out.flush();
+        } catch (Exception e) {
+            org.eclipse.jetty.server.Request.getBaseRequest(request.raw()).getHttpChannel().abort(e);
+        }
+        return "";
+    }
+
+    private static void writeGames(JsonWriter out, List<ListGameResponse> games) throws IOException {
+        for (var game : games) {
+            ModelTypeAdapters.LIST_GAME.write(out, game);
+        }
     }
 
-    private Object listGameFormatter(Collection<GameData> gameList) {
-        Collection<ListGameResponse> listGameResponses = new ArrayList<>();
+    private static int lastGameID(List<ListGameResponse> games) {
+        return games.get(games.size() - 1).gameID();
+    }
 
-        for (GameData gameData : gameList) {
-            listGameResponses.add(new ListGameResponse(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName()));
+    /**
+     * @return the query parameter as a non-negative int, or 0 when it is absent
+     */
+    private static int intParam(Request request, String name) throws ResponseException {
+        var value = request.queryParams(name);
+        if (value == null || value.isEmpty()) {
+            return 0;
         }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new ResponseException(400, "Error: bad request, " + name + " must be a number");
+        }
+    }
 
-        Map<String, Collection<ListGameResponse>> responseMap = new HashMap<>();
-        responseMap.put("games", listGameResponses);
-        return new Gson().toJson(responseMap);
+    /**
+     * Reports the database connection pool, auth cache and websocket send queue counters to a
+     * logged in user
+     */
+    private Object stats(Request request, Response response) throws Exception {
+        if (userService.getAuth(request.headers("Authorization")) == null) {
+            throw new ResponseException(401, "Error: unauthorized");
+        }
+        var stats = new ServerStats(DatabaseManager.poolStats(), userService.authCacheStats(),
+                webSocketHandler.sendStats());
+        response.status(200);
+        response.type("application/json");
+        return JsonCodec.GSON.toJson(stats);
     }
 
     private Object logout(Request request, Response response) throws Exception {
@@ -119,10 +243,10 @@ public class Server {
     }
 
     private Object login(Request request, Response response) throws Exception {
-        var user = new Gson().fromJson(request.body(), UserData.class);
+        var user = JsonCodec.GSON.fromJson(request.body(), UserData.class);
         var res = userService.loginUser(user);
         response.status(200);
-        return new Gson().toJson(res);
+        return JsonCodec.GSON.toJson(res);
     }
 
     private Object clear(Request request, Response response) throws ResponseException {
@@ -133,14 +257,46 @@ public class Server {
     }
 
     private String registerUser(Request request, Response response) throws Exception {
-        var user = new Gson().fromJson(request.body(), UserData.class);
+        var user = JsonCodec.GSON.fromJson(request.body(), UserData.class);
         var res = userService.registerUser(user);
         response.status(200);
-        return new Gson().toJson(res);
+        return JsonCodec.GSON.toJson(res);
     }
 
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        if (webSocketHandler != null) {
+            webSocketHandler.close();
+        }
+        if (gameService != null) {
+            try {
+                gameService.close();
+            } catch (ResponseException e) {
+                LOG.error("Unable to save games: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Builds Spark's Jetty server with a {@link VirtualThreadConnector}. Spark's thread pool
+     * settings size the platform threads the selectors run on the way they would size Spark's
+     * own QueuedThreadPool, and a thread pool handed to Spark explicitly is used as given.
+     */
+    private static class VirtualThreadJettyFactory implements JettyServerFactory {
+        @Override
+        public org.eclipse.jetty.server.Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+            if (maxThreads <= 0) {
+                return VirtualThreadConnector.newServer(new QueuedThreadPool());
+            }
+            int min = minThreads > 0 ? minThreads : 8;
+            int idleTimeout = threadTimeoutMillis > 0 ? threadTimeoutMillis : 60_000;
+            return VirtualThreadConnector.newServer(new QueuedThreadPool(maxThreads, min, idleTimeout));
+        }
+
+        @Override
+        public org.eclipse.jetty.server.Server create(ThreadPool threadPool) {
+            return VirtualThreadConnector.newServer(threadPool != null ? threadPool : new QueuedThreadPool());
+        }
     }
 }
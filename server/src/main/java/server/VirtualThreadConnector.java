@@ -0,0 +1,84 @@
+package server;
+
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A server connector that handles requests on virtual threads while Jetty's own long-running
+ * work stays on the server's platform {@link ThreadPool}.
+ * <p>
+ * The selectors block in native calls for as long as the server runs, which would pin a virtual
+ * thread's carrier for good, so the selector manager starts them on the server's pool. There are
+ * no acceptor threads; the selectors accept connections themselves. Everything the selectors hand
+ * to the connector's executor, reading and handling requests and websocket frames, runs on a
+ * {@link VirtualThreadExecutor}, so a request blocking on JDBC parks instead of holding a pool
+ * thread.
+ * <p>
+ * On stop, the connector stops taking connections and gives running requests the executor's
+ * stop timeout to finish while the selectors are still there to write their responses.
+ */
+class VirtualThreadConnector extends ServerConnector {
+    private final VirtualThreadExecutor requests;
+
+    VirtualThreadConnector(Server server, ConnectionFactory... factories) {
+        this(server, new VirtualThreadExecutor("http-virtual"), factories);
+    }
+
+    private VirtualThreadConnector(Server server, VirtualThreadExecutor requests, ConnectionFactory... factories) {
+        super(server, requests, null, null, 0, -1, factories);
+        this.requests = requests;
+    }
+
+    @Override
+    protected SelectorManager newSelectorManager(Executor executor, Scheduler scheduler, int selectors) {
+        return new ServerConnectorManager(executor, scheduler, selectors) {
+            @Override
+            protected void execute(Runnable task) {
+                getServer().getThreadPool().execute(task);
+            }
+        };
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        close();
+        requests.stop();
+        super.doStop();
+    }
+
+    /**
+     * Builds a Jetty server on the given platform threads whose plain {@link ServerConnector}s,
+     * like the one Spark creates for its host and port, are swapped for a VirtualThreadConnector
+     * listening at the same address
+     */
+    static Server newServer(ThreadPool platformThreads) {
+        return new Server(platformThreads) {
+            @Override
+            public void setConnectors(Connector[] connectors) {
+                var swapped = connectors == null ? null : connectors.clone();
+                for (int i = 0; swapped != null && i < swapped.length; i++) {
+                    if (swapped[i].getClass() == ServerConnector.class) {
+                        swapped[i] = forAddressOf((ServerConnector) swapped[i]);
+                    }
+                }
+                super.setConnectors(swapped);
+            }
+
+            private Connector forAddressOf(ServerConnector plain) {
+                var connector = new VirtualThreadConnector(this,
+                        plain.getConnectionFactories().toArray(new ConnectionFactory[0]));
+                connector.setHost(plain.getHost());
+                connector.setPort(plain.getPort());
+                connector.setIdleTimeout(plain.getIdleTimeout());
+                return connector;
+            }
+        };
+    }
+}
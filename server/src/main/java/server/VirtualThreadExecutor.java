@@ -0,0 +1,50 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on a new virtual thread, for the request handling a
+ * {@link VirtualThreadConnector} dispatches. There is no thread limit; request concurrency is
+ * bounded by the database connection pool instead.
+ * <p>
+ * On stop, new tasks are refused and running ones get the stop timeout to finish before they
+ * are interrupted.
+ */
+class VirtualThreadExecutor extends AbstractLifeCycle implements Executor {
+    private final String name;
+    private volatile ExecutorService tasks;
+
+    VirtualThreadExecutor(String name) {
+        this.name = name;
+        setStopTimeout(5_000);
+    }
+
+    @Override
+    protected void doStart() {
+        tasks = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        var running = tasks;
+        running.shutdown();
+        if (!running.awaitTermination(Math.max(getStopTimeout(), 1), TimeUnit.MILLISECONDS)) {
+            running.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        var running = tasks;
+        if (running == null) {
+            throw new RejectedExecutionException(name + " has not been started");
+        }
+        running.execute(task);
+    }
+}
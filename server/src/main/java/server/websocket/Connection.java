@@ -4,21 +4,57 @@ package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-import java.io.IOException;
-
+/**
+ * One client's websocket in a game.
+ * <p>
+ * Frames go out through the socket's {@link SessionQueue}, which every game the socket has
+ * joined shares, so sends never block the caller and reach the client in the order they were
+ * queued.
+ */
 public class Connection {
     private int gameID;
     private Session session;
     private String playerAuth;
+    private final boolean moveDeltas;
+    private final boolean binary;
+    private final SessionQueue queue;
 
-    public Connection(int gameID, Session session, String playerAuth) {
+    /**
+     * @param moveDeltas True if the client asked for move messages instead of a LOAD_GAME after each move
+     * @param binary     True if the client speaks the binary protocol instead of JSON
+     * @param queue      the outbound queue of the client's socket
+     */
+    Connection(int gameID, Session session, String playerAuth, boolean moveDeltas, boolean binary,
+               SessionQueue queue) {
         this.gameID = gameID;
         this.session = session;
         this.playerAuth = playerAuth;
+        this.moveDeltas = moveDeltas;
+        this.binary = binary;
+        this.queue = queue;
+    }
+
+    public void send(String msg) {
+        send(msg, false);
+    }
+
+    /**
+     * Queues a text frame for this client
+     *
+     * @param snapshot True if the frame is a full game snapshot that supersedes earlier ones
+     */
+    public void send(String msg, boolean snapshot) {
+        queue.send(msg, snapshot ? gameID : 0);
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    /**
+     * Queues a binary frame for this client. The array is shared with other recipients and
+     * must not be modified afterwards.
+     *
+     * @param snapshot True if the frame is a full game snapshot that supersedes earlier ones
+     */
+    public void send(byte[] data, boolean snapshot) {
+        queue.send(data, snapshot ? gameID : 0);
     }
 
     public Session getSession() {
@@ -31,4 +67,12 @@ public class Connection {
     public String getPlayerAuth() {
         return playerAuth;
     }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
 }
@@ -1,89 +1,301 @@
 package server.websocket;
 
 
-import com.google.gson.Gson;
+import model.JsonCodec;
 import org.eclipse.jetty.websocket.api.Session;
+import websocket.BinaryCodec;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.ServerMessage;
 
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * Tracks every websocket connection, indexed by game, by session and by auth token.
+ * <p>
+ * A socket may join several games, but it has a single {@link SessionQueue}, which all of its
+ * connections and any replies outside a game send through, so its frames are written one at a
+ * time in the order they were queued. The queue goes away when the socket closes.
+ * <p>
+ * All three indexes are concurrent maps whose entries are created and removed inside
+ * {@code compute}, so a game or token with no connections left disappears from its map and
+ * concurrent adds never land in a map that is being discarded. Broadcasts iterate a game's
+ * connections without locking; the iteration is weakly consistent and never throws
+ * {@code ConcurrentModificationException}.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<Integer, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Session, Connection>> byGame = new ConcurrentHashMap<>();
+    private final Map<Session, Set<Integer>> bySession = new ConcurrentHashMap<>();
+    private final Map<String, Set<Connection>> byAuth = new ConcurrentHashMap<>();
+    private final Map<Session, SessionQueue> queues = new ConcurrentHashMap<>();
 
     public void add(int gameID, Session session, String auth) {
-        if (connections.containsKey(gameID)) {
-            var sessions = connections.get(gameID);
-            var connection = new Connection(gameID, session, auth);
-            sessions.add(connection);
-        } else{
-            var sessions = new ArrayList<Connection>();
-            var connection = new Connection(gameID, session, auth);
-            sessions.add(connection);
-        connections.put(gameID, sessions);
+        add(gameID, session, auth, false, false);
+    }
+
+    /**
+     * Registers a session in a game, replacing any earlier registration of the same session there
+     *
+     * @param moveDeltas True if the client wants move messages instead of a LOAD_GAME after each move
+     * @param binary     True if the client speaks the binary protocol instead of JSON
+     */
+    public void add(int gameID, Session session, String auth, boolean moveDeltas, boolean binary) {
+        var connection = new Connection(gameID, session, auth, moveDeltas, binary, queue(session));
+        var previous = new Connection[1];
+        byGame.compute(gameID, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = new ConcurrentHashMap<>();
+            }
+            previous[0] = sessions.put(session, connection);
+            return sessions;
+        });
+        if (previous[0] != null) {
+            removeFromAuth(previous[0]);
+        }
+        bySession.compute(session, (s, games) -> {
+            if (games == null) {
+                games = ConcurrentHashMap.newKeySet();
+            }
+            games.add(gameID);
+            return games;
+        });
+        if (auth != null) {
+            byAuth.compute(auth, (a, set) -> {
+                if (set == null) {
+                    set = ConcurrentHashMap.newKeySet();
+                }
+                set.add(connection);
+                return set;
+            });
         }
     }
 
+    /**
+     * Removes every connection the auth token has in the game
+     */
     public void remove(Integer gameID, String auth) {
-        List<Connection> sessions = connections.get(gameID);
-        for (Connection c : sessions){
-            if (c.getPlayerAuth().equals(auth)){
-                sessions.remove(c);
+        if (auth == null) {
+            return;
+        }
+        var connections = byAuth.get(auth);
+        if (connections == null) {
+            return;
+        }
+        for (var c : List.copyOf(connections)) {
+            if (c.getGameID() == gameID) {
+                unregister(c);
             }
         }
     }
 
-    public void broadcast(Integer gameID, ServerMessage notification, String auth) throws IOException {
-        var removeList = new ArrayList<Connection>();
-        for (var c : connections.get(gameID)) {
-            if (c.getSession().isOpen()) {
-                if (!(c.getPlayerAuth().equals(auth))) {
-                    c.send(new Gson().toJson(notification));
-                }
-            } else {
-                removeList.add(c);
+    /**
+     * Removes a session from every game it joined, for when the socket closes
+     */
+    public void remove(Session session) {
+        queues.remove(session);
+        var games = bySession.remove(session);
+        if (games == null) {
+            return;
+        }
+        for (var gameID : games) {
+            var sessions = byGame.get(gameID);
+            var c = sessions == null ? null : sessions.get(session);
+            if (c != null) {
+                unregister(c);
+            }
+        }
+    }
+
+    private void unregister(Connection c) {
+        byGame.computeIfPresent(c.getGameID(), (id, sessions) -> {
+            sessions.remove(c.getSession(), c);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        bySession.computeIfPresent(c.getSession(), (s, games) -> {
+            var sessions = byGame.get(c.getGameID());
+            if (sessions == null || !sessions.containsKey(s)) {
+                games.remove(c.getGameID());
             }
+            return games.isEmpty() ? null : games;
+        });
+        if (!c.getSession().isOpen()) {
+            queues.remove(c.getSession());
         }
+        removeFromAuth(c);
+    }
 
-        // Clean up any connections that were left open.
-        for (var c : removeList) {
-            connections.get(gameID).remove(c);
+    private void removeFromAuth(Connection c) {
+        if (c.getPlayerAuth() == null) {
+            return;
         }
+        byAuth.computeIfPresent(c.getPlayerAuth(), (a, set) -> {
+            set.remove(c);
+            return set.isEmpty() ? null : set;
+        });
     }
 
-    public void localBroadcast(Integer gameID, ServerMessage notification, Session session) throws IOException {
-        var removeList = new ArrayList<Connection>();
-        for (var c : connections.get(gameID)) {
-            if (c.getSession().isOpen()) {
-                if (c.getSession().equals(session)) {
-                    c.send(new Gson().toJson(notification));
-                }
-            } else {
-                removeList.add(c);
+    /**
+     * @return True if the auth token has a connection in the game
+     */
+    public boolean isConnected(int gameID, String auth) {
+        if (auth == null) {
+            return false;
+        }
+        var connections = byAuth.get(auth);
+        if (connections == null) {
+            return false;
+        }
+        for (var c : connections) {
+            if (c.getGameID() == gameID) {
+                return true;
             }
         }
-        for (var c : removeList) {
-            connections.get(gameID).remove(c);
+        return false;
+    }
+
+    public void broadcast(Integer gameID, ServerMessage notification, String auth) {
+        fanOut(gameID, notification, c -> !Objects.equals(c.getPlayerAuth(), auth));
+    }
+
+    public void localBroadcast(Integer gameID, ServerMessage notification, Session session) {
+        var c = connection(gameID, session);
+        if (c != null && c.getSession().isOpen()) {
+            new Payload(notification).sendTo(c);
         }
     }
 
-    public void generalBroadcast(Integer gameID, ServerMessage notification) throws IOException {
-        var removeList = new ArrayList<Connection>();
-        for (var c : connections.get(gameID)) {
+    /**
+     * Answers a session that may not have joined any game yet, such as one whose command could
+     * not be decoded. The message goes through the socket's queue, behind frames already on
+     * their way to that client.
+     *
+     * @param binary True to answer in the binary protocol
+     */
+    public void reply(Session session, ServerMessage message, boolean binary) {
+        if (!session.isOpen()) {
+            return;
+        }
+        new Payload(message).sendTo(new Connection(0, session, null, false, binary, queue(session)));
+    }
+
+    private SessionQueue queue(Session session) {
+        return queues.computeIfAbsent(session, SessionQueue::new);
+    }
+
+    public void generalBroadcast(Integer gameID, ServerMessage notification) {
+        fanOut(gameID, notification, c -> true);
+    }
+
+    /**
+     * Announces a played move: clients that asked for deltas get the move, everyone else gets the
+     * full snapshot. Each form is encoded at most once per wire format.
+     */
+    public void moveBroadcast(Integer gameID, LoadGameMessage snapshot, MoveMessage delta) {
+        var sessions = byGame.get(gameID);
+        if (sessions == null) {
+            return;
+        }
+        var snapshotPayload = new Payload(snapshot);
+        var deltaPayload = new Payload(delta);
+        for (var c : sessions.values()) {
+            if (!c.getSession().isOpen()) {
+                unregister(c);
+            } else if (c.wantsMoveDeltas()) {
+                deltaPayload.sendTo(c);
+            } else {
+                snapshotPayload.sendTo(c);
+            }
+        }
+    }
+
+    /**
+     * Sends a message to every open connection in the game that the filter accepts. The message
+     * is encoded once per wire format, on the first match, and shared by every recipient.
+     */
+    private void fanOut(Integer gameID, ServerMessage message, Predicate<Connection> recipient) {
+        var sessions = byGame.get(gameID);
+        if (sessions == null) {
+            return;
+        }
+        var payload = new Payload(message);
+        for (var c : sessions.values()) {
             if (c.getSession().isOpen()) {
-                c.send(new Gson().toJson(notification));
+                if (recipient.test(c)) {
+                    payload.sendTo(c);
+                }
             } else {
-                removeList.add(c);
+                // Clean up any connections that were left open.
+                unregister(c);
             }
         }
-        for (var c : removeList) {
-            connections.get(gameID).remove(c);
+    }
+
+    /**
+     * A message on its way to several connections, encoded lazily as JSON and binary
+     */
+    private static final class Payload {
+        private final ServerMessage message;
+        private final boolean snapshot;
+        private String json;
+        private byte[] binary;
+
+        private Payload(ServerMessage message) {
+            this.message = message;
+            this.snapshot = message.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME;
         }
+
+        private void sendTo(Connection c) {
+            if (c.isBinary()) {
+                if (binary == null) {
+                    binary = BinaryCodec.encodeMessage(message);
+                }
+                c.send(binary, snapshot);
+            } else {
+                if (json == null) {
+                    json = JsonCodec.GSON.toJson(message);
+                }
+                c.send(json, snapshot);
+            }
+        }
+    }
+
+    private Connection connection(Integer gameID, Session session) {
+        var sessions = byGame.get(gameID);
+        return sessions == null ? null : sessions.get(session);
     }
 
-    public List<Connection> getConnections(Integer gameID) {
-        return connections.get(gameID);
+    /**
+     * Totals of the outbound queues across every socket
+     *
+     * @param connections     open sockets
+     * @param queuedFrames    frames waiting to be written
+     * @param maxQueueDepth   deepest single socket queue
+     * @param droppedFrames   frames discarded for slow or closed clients
+     * @param coalescedFrames LOAD_GAME snapshots replaced before they were written
+     */
+    public record SendStats(int connections, long queuedFrames, int maxQueueDepth,
+                            long droppedFrames, long coalescedFrames) {
+    }
+
+    public SendStats sendStats() {
+        int count = 0;
+        long queued = 0;
+        int maxDepth = 0;
+        long dropped = 0;
+        long coalesced = 0;
+        for (var queue : queues.values()) {
+            int depth = queue.queueDepth();
+            count++;
+            queued += depth;
+            maxDepth = Math.max(maxDepth, depth);
+            dropped += queue.droppedFrames();
+            coalesced += queue.coalescedFrames();
+        }
+        return new SendStats(count, queued, maxDepth, dropped, coalesced);
     }
 }
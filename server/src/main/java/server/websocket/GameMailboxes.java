@@ -0,0 +1,129 @@
+package server.websocket;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs the commands for each game one at a time, in the order they arrived.
+ * <p>
+ * Every game with work waiting has a mailbox drained by a single virtual thread, so a game's
+ * state only ever has one writer while different games run in parallel. A mailbox is removed
+ * once it is empty and a new one is started by the next command for that game. Once closed,
+ * new commands are refused rather than queued.
+ */
+public class GameMailboxes {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public interface Command {
+        void run() throws Exception;
+    }
+
+    /**
+     * A queued command and what to tell if it fails
+     */
+    private record Task(Command command, Consumer<Exception> onFailure) {
+    }
+
+    private static class Mailbox {
+        private final Queue<Task> commands = new ConcurrentLinkedQueue<>();
+        private boolean running;
+    }
+
+    /**
+     * Queues a command behind any others waiting for the same game
+     *
+     * @param onFailure called with the exception if the command throws
+     * @return False if the mailboxes are closed and the command was not queued
+     */
+    public boolean submit(int gameID, Command command, Consumer<Exception> onFailure) {
+        if (closed) {
+            return false;
+        }
+        var task = new Task(command, onFailure);
+        var rejected = new boolean[1];
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            mailbox.commands.add(task);
+            if (!mailbox.running) {
+                var toDrain = mailbox;
+                try {
+                    executor.execute(() -> drain(id, toDrain));
+                    mailbox.running = true;
+                } catch (RejectedExecutionException e) {
+                    // Closed between the check above and here
+                    mailbox.commands.remove(task);
+                    rejected[0] = true;
+                    return mailbox.commands.isEmpty() ? null : mailbox;
+                }
+            }
+            return mailbox;
+        });
+        return !rejected[0];
+    }
+
+    private void drain(int gameID, Mailbox mailbox) {
+        do {
+            Task task;
+            while ((task = mailbox.commands.poll()) != null) {
+                run(task);
+            }
+        } while (!release(gameID, mailbox));
+    }
+
+    /**
+     * Runs a command, reporting a failure to its sender. Nothing escapes, so one bad command
+     * never stalls the rest of its game's mailbox.
+     */
+    private static void run(Task task) {
+        try {
+            task.command().run();
+        } catch (Exception e) {
+            try {
+                task.onFailure().accept(e);
+            } catch (RuntimeException ignored) {
+                // The sender could not be told; carry on with the game's other commands
+            }
+        }
+    }
+
+    /**
+     * Removes the mailbox if nothing arrived since it was last emptied
+     *
+     * @return True if the mailbox was released, false if more commands are waiting
+     */
+    private boolean release(int gameID, Mailbox mailbox) {
+        var remaining = mailboxes.computeIfPresent(gameID, (id, current) -> {
+            if (current == mailbox && current.commands.isEmpty()) {
+                current.running = false;
+                return null;
+            }
+            return current;
+        });
+        return remaining == null;
+    }
+
+    /**
+     * @return games with commands waiting or running
+     */
+    int activeGames() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops taking commands and waits for the ones already queued to finish
+     */
+    public void close() {
+        closed = true;
+        executor.close();
+    }
+}
@@ -0,0 +1,168 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * The outbound frames of one websocket, shared by every game the socket has joined.
+ * <p>
+ * Sends never block the caller. Frames wait in a bounded queue and are written one at a time
+ * with Jetty's asynchronous send, so a slow client only delays itself and frames for different
+ * games never race each other onto the socket. A new LOAD_GAME snapshot replaces any snapshot of
+ * the same game still waiting, since only the newest board matters. If the queue is still full,
+ * the oldest waiting notification is dropped to make room.
+ */
+class SessionQueue {
+    static final int MAX_QUEUED_FRAMES = 32;
+
+    private final Session session;
+    private final ArrayDeque<Frame> outbound = new ArrayDeque<>();
+    private boolean writing;
+    private long droppedFrames;
+    private long coalescedFrames;
+
+    /**
+     * A queued websocket frame, holding either text or binary data
+     *
+     * @param snapshotOf the game this frame is a full snapshot of, or 0 if it is not a snapshot
+     */
+    private record Frame(String text, byte[] data, int snapshotOf) {
+    }
+
+    SessionQueue(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Queues a text frame and starts writing it if nothing else is in flight
+     *
+     * @param snapshotOf the game whose earlier snapshots this frame supersedes, or 0
+     */
+    void send(String text, int snapshotOf) {
+        enqueue(new Frame(text, null, snapshotOf));
+    }
+
+    /**
+     * Queues a binary frame. The array is shared with other recipients and must not be modified
+     * afterwards.
+     *
+     * @param snapshotOf the game whose earlier snapshots this frame supersedes, or 0
+     */
+    void send(byte[] data, int snapshotOf) {
+        enqueue(new Frame(null, data, snapshotOf));
+    }
+
+    private void enqueue(Frame frame) {
+        Frame next;
+        synchronized (this) {
+            if (frame.snapshotOf() != 0) {
+                coalesceSnapshots(frame.snapshotOf());
+            }
+            if (outbound.size() >= MAX_QUEUED_FRAMES) {
+                dropOldest();
+            }
+            outbound.addLast(frame);
+            if (writing) {
+                return;
+            }
+            writing = true;
+            next = outbound.pollFirst();
+        }
+        write(next);
+    }
+
+    private void coalesceSnapshots(int gameID) {
+        for (Iterator<Frame> it = outbound.iterator(); it.hasNext(); ) {
+            if (it.next().snapshotOf() == gameID) {
+                it.remove();
+                coalescedFrames++;
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest waiting frame other than a pending snapshot, so the client still
+     * catches up to the current board
+     */
+    private void dropOldest() {
+        for (Iterator<Frame> it = outbound.iterator(); it.hasNext(); ) {
+            if (it.next().snapshotOf() == 0) {
+                it.remove();
+                droppedFrames++;
+                return;
+            }
+        }
+        outbound.pollFirst();
+        droppedFrames++;
+    }
+
+    private void write(Frame frame) {
+        if (!session.isOpen()) {
+            abandon();
+            return;
+        }
+        var callback = new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                abandon();
+            }
+
+            @Override
+            public void writeSuccess() {
+                Frame next;
+                synchronized (SessionQueue.this) {
+                    next = outbound.pollFirst();
+                    if (next == null) {
+                        writing = false;
+                        return;
+                    }
+                }
+                write(next);
+            }
+        };
+        try {
+            if (frame.data() != null) {
+                session.getRemote().sendBytes(ByteBuffer.wrap(frame.data()), callback);
+            } else {
+                session.getRemote().sendString(frame.text(), callback);
+            }
+        } catch (RuntimeException e) {
+            abandon();
+        }
+    }
+
+    /**
+     * Discards everything still waiting, for a client that went away, and lets the next send
+     * start writing again
+     */
+    private synchronized void abandon() {
+        droppedFrames += outbound.size();
+        outbound.clear();
+        writing = false;
+    }
+
+    /**
+     * @return frames waiting behind the one being written
+     */
+    synchronized int queueDepth() {
+        return outbound.size();
+    }
+
+    /**
+     * @return frames discarded because the queue was full or the client went away
+     */
+    synchronized long droppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return LOAD_GAME snapshots replaced by a newer one before they were written
+     */
+    synchronized long coalescedFrames() {
+        return coalescedFrames;
+    }
+}
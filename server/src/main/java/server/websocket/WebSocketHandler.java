@@ -1,14 +1,18 @@
 package server.websocket;
 
 import chess.*;
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import model.AuthData;
 import model.GameData;
+import model.JsonCodec;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import service.GameService;
 import service.UserService;
+import websocket.BinaryCodec;
+import websocket.commands.ConnectCommand;
 import websocket.commands.GameCommand;
 import websocket.commands.MoveCommand;
 import websocket.commands.UserGameCommand;
@@ -20,35 +24,109 @@ import java.util.List;
 @WebSocket
 public class WebSocketHandler {
     private final ConnectionManager connections = new ConnectionManager();
+    private final GameMailboxes mailboxes = new GameMailboxes();
     private final GameService gameService;
     private final UserService userService;
 
     public WebSocketHandler(GameService gameService, UserService userService) {
         this.gameService = gameService;
         this.userService = userService;
+        gameService.onConflict(gameID -> mailboxes.submit(gameID, () -> reloadAfterConflict(gameID),
+                e -> connections.generalBroadcast(gameID, new ErrorMessage(ServerMessage.ServerMessageType.ERROR,
+                        "Error: could not reload the game, please rejoin"))));
     }
 
 
+    /**
+     * Decodes a command, as the subclass its type calls for, on the receiving thread and queues it on its game's mailbox, so
+     * commands for one game run one at a time while different games run in parallel.
+     */
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws Exception {
-        UserGameCommand action = new Gson().fromJson(message, UserGameCommand.class);
+    public void onMessage(Session session, String message) {
+        UserGameCommand command;
+        try {
+            command = JsonCodec.GSON.fromJson(message, UserGameCommand.class);
+        } catch (JsonParseException e) {
+            var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: " + e.getMessage());
+            connections.reply(session, error, false);
+            return;
+        }
+        if (command == null) {
+            var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: empty command");
+            connections.reply(session, error, false);
+            return;
+        }
+        submit(session, command, false);
+    }
+
+    /**
+     * Accepts commands in the binary protocol. A client that connects with a binary frame is
+     * answered in binary from then on.
+     */
+    @OnWebSocketMessage
+    public void onMessage(Session session, byte[] payload, int offset, int length) {
+        UserGameCommand command;
+        try {
+            command = BinaryCodec.decodeCommand(payload, offset, length);
+        } catch (IllegalArgumentException e) {
+            var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: " + e.getMessage());
+            connections.reply(session, error, true);
+            return;
+        }
+        submit(session, command, true);
+    }
+
+    /**
+     * Queues a command on its game's mailbox. A command that fails, or arrives while the server
+     * is shutting down, is answered with an error to the session that sent it.
+     */
+    private void submit(Session session, UserGameCommand command, boolean binary) {
+        boolean queued = mailboxes.submit(command.getGameID(), () -> handle(session, command, binary),
+                e -> connections.reply(session, new ErrorMessage(ServerMessage.ServerMessageType.ERROR,
+                        "Error: " + e.getMessage()), binary));
+        if (!queued) {
+            connections.reply(session, new ErrorMessage(ServerMessage.ServerMessageType.ERROR,
+                    "Error: server is shutting down"), binary);
+        }
+    }
+
+    /**
+     * Drops the session from every game it joined so closed sockets don't linger in the registry
+     */
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        connections.remove(session);
+    }
+
+    private void handle(Session session, UserGameCommand action, boolean binary) throws Exception {
+        int gameID = action.getGameID();
+        String auth = action.getAuthToken();
         switch (action.getCommandType()) {
-            case CONNECT -> connect(action.getGameID(), session, action.getAuthToken());
-            case LEAVE -> leave(action.getGameID(), action.getAuthToken(), session);
-            case RESIGN -> resign(action.getGameID(), action.getAuthToken(), session);
-            case MAKE_MOVE -> {
-                MoveCommand moveCommand = new Gson().fromJson(message, MoveCommand.class);
-                makeMove(moveCommand.getGameID(), moveCommand.getAuthToken(), session, moveCommand.getMove());
-            }
-            case LOAD_GAME -> {
-                GameCommand gameCommand = new Gson().fromJson(message, GameCommand.class);
-                loadGame(gameCommand.getGameID(), gameCommand.getAuthToken(), session, gameCommand.getHighlight());
-            }
+            case CONNECT -> connect(gameID, session, auth, ((ConnectCommand) action).getMoveDeltas(), binary);
+            case LEAVE -> leave(gameID, auth, session);
+            case RESIGN -> resign(gameID, auth, session);
+            case MAKE_MOVE -> makeMove(gameID, auth, session, ((MoveCommand) action).getMove());
+            case LOAD_GAME -> loadGame(gameID, auth, session, ((GameCommand) action).getHighlight());
         }
     }
 
-    private void connect(int gameID, Session session, String auth) throws Exception {
-        connections.add(gameID, session, auth);
+    /**
+     * @return the outbound queue totals across every websocket connection
+     */
+    public ConnectionManager.SendStats sendStats() {
+        return connections.sendStats();
+    }
+
+    /**
+     * Waits for queued commands to finish
+     */
+    public void close() {
+        mailboxes.close();
+    }
+
+    private void connect(int gameID, Session session, String auth, boolean moveDeltas, boolean binary)
+            throws Exception {
+        connections.add(gameID, session, auth, moveDeltas, binary);
         if (assertAuth(gameID, auth, session, false) && assertGameID(gameID, auth, session)) {
             try {
                 GameData gameBoard = gameService.getGame(gameID);
@@ -139,38 +217,46 @@ public class WebSocketHandler {
         if (assertAuth(gameID, auth, session, true) && assertGameID(gameID, auth, session) &&
                 assertChessMove(gameID,auth,session,move) && assertGameplay(gameID, session)) {
             try {
-                GameData gameBoard = gameService.getGame(gameID);
+                GameData gameBoard;
+                ChessGame.GameStatus status = ChessGame.GameStatus.PLAYING;
+                boolean moved = false;
                 try {
-                    gameBoard.game().makeMove(move);
-                    gameService.updateGame(gameBoard.game(), gameID);
+                    var played = gameService.makeMove(gameID, move);
+                    gameBoard = played.game();
+                    status = played.status();
+                    moved = true;
                 } catch (InvalidMoveException e) {
+                    gameBoard = gameService.getGame(gameID);
                     var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, e.getMessage());
                     connections.localBroadcast(gameID,error,session);
                 }
+                ChessGame.TeamColor color = gameBoard.game().getTeamTurn();
                 var game = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameBoard);
                 String message = String.format("player made move %s", move.getEndPosition());
                 var notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, message);
                 connections.broadcast(gameID, notification, auth);
-                connections.generalBroadcast(gameID, game);
-                ChessGame.TeamColor color = gameBoard.game().getTeamTurn();
-                if (gameBoard.game().isInCheck(color)) {
-                    if (gameBoard.game().isInCheckmate(color)) {
-                        gameBoard.game().resignGame();
-                        gameService.updateGame(gameBoard.game(), gameID);
+                if (moved) {
+                    connections.moveBroadcast(gameID, game, new MoveMessage(move, gameBoard.game(), status));
+                } else {
+                    connections.generalBroadcast(gameID, game);
+                }
+                switch (status) {
+                    case CHECK -> {
                         var check = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION,
-                                String.format("%s is in checkmate, Game Over!", color.toString()));
+                                String.format("%s is in check", color.toString()));
                         connections.generalBroadcast(gameID, check);
-                    } else {
+                    }
+                    case CHECKMATE -> {
                         var check = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION,
-                                String.format("%s is in check", color.toString()));
+                                String.format("%s is in checkmate, Game Over!", color.toString()));
                         connections.generalBroadcast(gameID, check);
                     }
-                }
-                if (gameBoard.game().isInStalemate(color)) {
-                    gameBoard.game().resignGame();
-                    gameService.updateGame(gameBoard.game(), gameID);
-                    var check = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "Stalemate!");
-                    connections.generalBroadcast(gameID, check);
+                    case STALEMATE -> {
+                        var check = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "Stalemate!");
+                        connections.generalBroadcast(gameID, check);
+                    }
+                    case PLAYING -> {
+                    }
                 }
             } catch (Exception ex) {
                 var notification = new ErrorMessage(ServerMessage.ServerMessageType.ERROR,
@@ -180,6 +266,20 @@ public class WebSocketHandler {
         }
     }
 
+    /**
+     * Tells everyone in a game that moves were lost to another server's write and sends them the
+     * game as it was stored
+     */
+    private void reloadAfterConflict(int gameID) throws Exception {
+        var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR,
+                "Error: the game was changed elsewhere and the latest moves were lost, reloading");
+        connections.generalBroadcast(gameID, error);
+        GameData gameBoard = gameService.getGame(gameID);
+        if (gameBoard != null) {
+            connections.generalBroadcast(gameID, new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameBoard));
+        }
+    }
+
     private void loadGame(int gameID, String auth, Session session, List<ChessPosition> highlight) throws Exception {
         if (assertAuth(gameID, auth, session,true) && assertGameID(gameID, auth, session)){
             ChessGame game = gameService.getGame(gameID).game();
@@ -198,11 +298,8 @@ public class WebSocketHandler {
                 connections.remove(gameID, auth);
                 return false;
             } else if (gamePlay){
-                List<Connection> users = connections.getConnections(gameID);
-                for (var user : users){
-                    if (user.getPlayerAuth().equals(auth)){
-                        return true;
-                    }
+                if (connections.isConnected(gameID, auth)) {
+                    return true;
                 }
                 var message = "Error: player is not authorized";
                 var notification = new ErrorMessage(ErrorMessage.ServerMessageType.ERROR, message);
@@ -274,12 +371,6 @@ public class WebSocketHandler {
                 connections.localBroadcast(gameID, notification, session);
                 return false;
             }
-            if(chessGame.isInCheckmate(piece.getTeamColor())){
-                GameData gameData = gameService.getGame(gameID);
-                var notification = new LoadGameMessage(ErrorMessage.ServerMessageType.LOAD_GAME, gameData);
-                connections.generalBroadcast(gameID, notification);
-                return false;
-            }
             if(chessGame.getTeamTurn() != piece.getTeamColor()){
                 var notification = new ErrorMessage(ErrorMessage.ServerMessageType.ERROR,
                         "Error: It is not your turn");
@@ -1,15 +1,35 @@
 package service;
 
 import chess.ChessGame;
-import dataaccess.SQLGameDAO;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import dataaccess.GameListQuery;
+import dataaccess.WriteBehindGameDAO;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.ListGameResponse;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 public class GameService {
-    private final SQLGameDAO gameAccess = new SQLGameDAO();
+    private static final int UPDATE_ATTEMPTS = 3;
+    private final WriteBehindGameDAO gameAccess = new WriteBehindGameDAO();
+
+    /**
+     * A change to a game's board. Throwing rejects the change and leaves the game as it was.
+     */
+    public interface GameChange {
+        void apply(ChessGame game) throws Exception;
+    }
+
+    /**
+     * A game as saved after a move, with the status of the side now to move
+     */
+    public record PlayedMove(GameData game, ChessGame.GameStatus status) {
+    }
 
     public GameService() throws ResponseException {
     }
@@ -23,6 +43,15 @@ public class GameService {
         }
     }
 
+    public List<ListGameResponse> listGameSummaries(AuthData auth, GameListQuery query, UserService userService) throws Exception {
+        var authCheck = userService.getAuth(auth.authToken());
+        if (authCheck == null) {
+            throw new ResponseException(401, "Error: unauthorized");
+        } else {
+            return gameAccess.listGameSummaries(query);
+        }
+    }
+
     public GameData createGame(String gameName, AuthData auth, UserService service) throws Exception {
         var authCheck = service.getAuth(auth.authToken());
         if (authCheck == null) {
@@ -59,18 +88,69 @@ public class GameService {
     }
 
     public GameData resignGame(int gameId) throws Exception {
-        GameData game = gameAccess.getGame(gameId);
-        game.game().resignGame();
-        gameAccess.updateGame(gameId, game.game());
-        return game;
+        return updateGame(gameId, ChessGame::resignGame);
+    }
+
+    /**
+     * Applies a change to a copy of the latest board and saves it only if the game has not
+     * changed since it was read. On a conflict the game is read again and the change retried,
+     * up to {@value #UPDATE_ATTEMPTS} times, before it is rejected with a 409.
+     *
+     * @return the game as saved
+     */
+    public GameData updateGame(int gameId, GameChange change) throws Exception {
+        return update(gameId, change, null);
+    }
+
+    /**
+     * Plays a move on the latest board the way {@link #updateGame(int, GameChange)} applies a
+     * change, logging just the move instead of rewriting the whole game. The game's status is
+     * settled afterwards so a mating move ends it.
+     *
+     * @return the game after the move, with the status it was settled with
+     */
+    public PlayedMove makeMove(int gameId, ChessMove move) throws Exception {
+        var status = new ChessGame.GameStatus[1];
+        var game = update(gameId, board -> {
+            board.makeMove(move);
+            status[0] = board.getStatus(board.getTeamTurn());
+        }, move);
+        return new PlayedMove(game, status[0]);
     }
 
-    public void updateGame(ChessGame game, int gameID) throws Exception {
-        gameAccess.updateGame(gameID, game);
+    private GameData update(int gameId, GameChange change, ChessMove move) throws Exception {
+        for (int attempt = 0; attempt < UPDATE_ATTEMPTS; attempt++) {
+            var current = gameAccess.getVersionedGame(gameId);
+            if (current == null) {
+                throw new ResponseException(400, "Error: game does not exist");
+            }
+            var board = ChessGameCodec.decode(ChessGameCodec.encode(current.game().game()));
+            change.apply(board);
+            var updated = gameAccess.updateGame(gameId, board, current.version(), move);
+            if (updated != null) {
+                return updated.game();
+            }
+        }
+        throw new ResponseException(409, "Error: the game was changed by someone else, please try again");
+    }
+
+    /**
+     * Sets what to call with the gameID of a game whose unsaved moves were dropped because
+     * another server wrote it first, see {@link WriteBehindGameDAO#onConflict(IntConsumer)}
+     */
+    public void onConflict(IntConsumer listener) {
+        gameAccess.onConflict(listener);
     }
 
     public void clear() throws ResponseException {
         gameAccess.clear();
     }
 
+    /**
+     * Writes any game states still waiting in memory to the database
+     */
+    public void close() throws ResponseException {
+        gameAccess.close();
+    }
+
 }
@@ -1,6 +1,6 @@
 package service;
 
-import dataaccess.SQLAuthDAO;
+import dataaccess.CachedAuthDAO;
 import dataaccess.SQLUserDAO;
 import exception.ResponseException;
 import model.AuthData;
@@ -9,7 +9,7 @@ import org.mindrot.jbcrypt.BCrypt;
 
 public class UserService {
     private final SQLUserDAO userAccess = new SQLUserDAO();
-    private final SQLAuthDAO authAccess = new SQLAuthDAO();
+    private final CachedAuthDAO authAccess = new CachedAuthDAO();
 
     public UserService() throws ResponseException {
     }
@@ -46,10 +46,17 @@ public class UserService {
         }
     }
 
+    /**
+     * Looks up a token, answering from the in-memory auth cache when it can
+     */
     public AuthData getAuth(String auth) throws Exception {
         return authAccess.getAuth(auth);
     }
 
+    public CachedAuthDAO.Stats authCacheStats() {
+        return authAccess.stats();
+    }
+
     public void clear() throws ResponseException {
         authAccess.clear();
         userAccess.clear();
@@ -0,0 +1,185 @@
+package dataaccess.tests;
+
+import dataaccess.ConnectionPool;
+import dataaccess.DataAccessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the pool against an in-memory driver whose connections only record whether they were closed
+ */
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:pooltest:";
+    private final StubDriver driver = new StubDriver();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        DriverManager.registerDriver(driver);
+        pool = new ConnectionPool(URL, "user", "password", "chess", 2, 50, 60_000);
+    }
+
+    @AfterEach
+    public void teardown() throws SQLException {
+        pool.shutdown();
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @Test
+    public void releasedConnectionIsReused() throws Exception {
+        try (var conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+            assertEquals(1, pool.stats().active());
+        }
+        assertEquals(0, pool.stats().active());
+        assertEquals(1, pool.stats().idle());
+
+        try (var ignored = pool.getConnection()) {
+            assertEquals(1, driver.opened.size());
+        }
+        assertFalse(driver.opened.get(0).closed);
+        assertEquals(2, pool.stats().borrows());
+    }
+
+    @Test
+    public void closedProxyRefusesUse() throws Exception {
+        var conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    public void borrowWaitsAtSizeLimit() throws Exception {
+        var first = pool.getConnection();
+        var second = pool.getConnection();
+        assertThrows(DataAccessException.class, pool::getConnection);
+        assertEquals(1, pool.stats().timeouts());
+
+        first.close();
+        try (var third = pool.getConnection()) {
+            assertFalse(third.isClosed());
+        }
+        second.close();
+        assertEquals(2, driver.opened.size());
+    }
+
+    @Test
+    public void openStatementsClosedOnRelease() throws Exception {
+        Statement statement;
+        try (var conn = pool.getConnection()) {
+            statement = conn.createStatement();
+        }
+        assertTrue(statement.isClosed());
+        assertFalse(driver.opened.get(0).closed);
+    }
+
+    @Test
+    public void releaseAfterShutdownCloses() throws Exception {
+        var idle = pool.getConnection();
+        var borrowed = pool.getConnection();
+        idle.close();
+        pool.shutdown();
+        assertTrue(driver.opened.get(0).closed);
+        assertFalse(driver.opened.get(1).closed);
+
+        borrowed.close();
+        assertTrue(driver.opened.get(1).closed);
+        assertEquals(0, pool.stats().idle());
+        assertThrows(DataAccessException.class, pool::getConnection);
+    }
+
+    /**
+     * A physical connection, or statement, that only tracks whether it has been closed
+     */
+    private static final class Stub {
+        private boolean closed;
+
+        private Object invoke(String method, Class<?> returnType) {
+            switch (method) {
+                case "close" -> closed = true;
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "isValid", "getAutoCommit" -> {
+                    return true;
+                }
+                case "createStatement" -> {
+                    return proxy(Statement.class, new Stub());
+                }
+                default -> {
+                    if (returnType == boolean.class) {
+                        return false;
+                    } else if (returnType == int.class) {
+                        return 0;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Stub stub) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> stub.invoke(method.getName(), method.getReturnType())));
+    }
+
+    private static final class StubDriver implements Driver {
+        private final List<Stub> opened = new ArrayList<>();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            var stub = new Stub();
+            opened.add(stub);
+            return proxy(Connection.class, stub);
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
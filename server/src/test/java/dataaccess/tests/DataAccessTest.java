@@ -1,9 +1,15 @@
 package dataaccess.tests;
 
 import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.CachedAuthDAO;
+import dataaccess.GameListQuery;
 import dataaccess.SQLAuthDAO;
 import dataaccess.SQLGameDAO;
 import dataaccess.SQLUserDAO;
+import dataaccess.WriteBehindGameDAO;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
@@ -13,6 +19,14 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -226,4 +240,254 @@ public class DataAccessTest {
         assertEquals(0, gameList.size());
     }
 
+    @Test
+    @Order(22)
+    public void writeBehindUpdateGame() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000);
+        var game = cached.createGame("game1", null);
+        game.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        cached.updateGame(game.gameID(), game.game());
+        assertEquals(ChessGame.TeamColor.BLACK, cached.getGame(game.gameID()).game().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(game.gameID()).game().getTeamTurn());
+        cached.flush();
+        assertEquals(game.game(), gameDAO.getGame(game.gameID()).game());
+        cached.close();
+    }
+
+    @Test
+    @Order(23)
+    public void writeBehindCloseFlushes() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000);
+        var game = cached.createGame("game2", null);
+        game.game().resignGame();
+        cached.updateGame(game.gameID(), game.game());
+        assertFalse(gameDAO.getGame(game.gameID()).game().getGameOver());
+        cached.close();
+        assertTrue(gameDAO.getGame(game.gameID()).game().getGameOver());
+    }
+
+    @Test
+    @Order(24)
+    public void cachedAuthServesRepeatLookups() throws Exception {
+        var cached = new CachedAuthDAO(authDAO, 100, 60_000);
+        var auth = authDAO.createAuth(new UserData("a", "p", "a@a.com"));
+        assertEquals(auth, cached.getAuth(auth.authToken()));
+        assertEquals(auth, cached.getAuth(auth.authToken()));
+        var stats = cached.stats();
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.hits());
+    }
+
+    @Test
+    @Order(25)
+    public void cachedAuthForgetsDeletedToken() throws Exception {
+        var cached = new CachedAuthDAO(authDAO, 100, 60_000);
+        var auth = cached.createAuth(new UserData("a", "p", "a@a.com"));
+        assertEquals(auth, cached.getAuth(auth.authToken()));
+        cached.deleteAuth(auth);
+        assertNull(cached.getAuth(auth.authToken()));
+    }
+
+    @Test
+    @Order(26)
+    public void listGameSummaries() throws Exception {
+        gameDAO.clear();
+        var auth = new AuthData("token", "a");
+        var first = gameDAO.createGame("first", auth);
+        var second = gameDAO.createGame("second", auth);
+        gameDAO.createGame("third", auth);
+        gameDAO.joinGame(auth, "WHITE", second.gameID());
+        gameDAO.joinGame(new AuthData("token2", "b"), "BLACK", second.gameID());
+
+        assertEquals(3, gameDAO.listGameSummaries(GameListQuery.ALL).size());
+        assertEquals(2, gameDAO.listGameSummaries(new GameListQuery(0, 0, true, null)).size());
+        var mine = gameDAO.listGameSummaries(new GameListQuery(0, 0, false, "b"));
+        assertEquals(1, mine.size());
+        assertEquals("second", mine.get(0).gameName());
+        var page = gameDAO.listGameSummaries(new GameListQuery(first.gameID(), 1, false, null));
+        assertEquals(1, page.size());
+        assertEquals(second.gameID(), page.get(0).gameID());
+    }
+
+    @Test
+    @Order(27)
+    public void concurrentJoinsClaimSeatOnce() throws Exception {
+        var game = gameDAO.createGame("race", null);
+        var pool = Executors.newFixedThreadPool(8);
+        var wins = new AtomicInteger();
+        var tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < 8; i++) {
+            var auth = new AuthData("token" + i, "player" + i);
+            tasks.add(() -> {
+                try {
+                    gameDAO.joinGame(auth, "WHITE", game.gameID());
+                    wins.incrementAndGet();
+                } catch (ResponseException e) {
+                    assertEquals(403, e.statusCode());
+                }
+                return null;
+            });
+        }
+        for (var result : pool.invokeAll(tasks)) {
+            result.get();
+        }
+        pool.shutdown();
+        assertEquals(1, wins.get());
+        assertNotNull(gameDAO.getGame(game.gameID()).whiteUsername());
+    }
+
+    @Test
+    @Order(28)
+    public void versionedUpdateRejectsStaleVersion() throws Exception {
+        var game = gameDAO.createGame("versioned", null);
+        var update = new SQLGameDAO.StateUpdate(ChessGameCodec.encode(new ChessGame()), 0, 1,
+                Collections.singletonList(null));
+        assertEquals(Set.of(), gameDAO.updateStates(Map.of(game.gameID(), update)));
+        assertEquals(Set.of(game.gameID()), gameDAO.updateStates(Map.of(game.gameID(), update)));
+        assertEquals(1, gameDAO.getVersionedGame(game.gameID()).version());
+    }
+
+    @Test
+    @Order(29)
+    public void writeBehindDropsConflictingFlush() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000);
+        var game = cached.createGame("contested", null);
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        var mine = new ChessGame();
+        mine.makeMove(move);
+        assertNotNull(cached.updateGame(game.gameID(), mine, 0));
+        assertNull(cached.updateGame(game.gameID(), mine, 0));
+
+        gameDAO.updateGame(game.gameID(), new ChessGame());
+        assertEquals(Set.of(game.gameID()), cached.flush());
+        assertEquals(ChessGame.TeamColor.WHITE, cached.getGame(game.gameID()).game().getTeamTurn());
+        cached.close();
+    }
+
+    @Test
+    @Order(30)
+    public void movesAreLoggedAndReplayed() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000);
+        var game = cached.createGame("logged", null);
+        var moves = new ChessMove[]{
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+        };
+        var board = new ChessGame();
+        for (int i = 0; i < moves.length; i++) {
+            board.makeMove(moves[i]);
+            assertNotNull(cached.updateGame(game.gameID(), board, i, moves[i]));
+        }
+        cached.close();
+
+        var stored = gameDAO.getVersionedGame(game.gameID());
+        assertEquals(moves.length, stored.version());
+        assertEquals(board, stored.game().game());
+    }
+
+    @Test
+    @Order(31)
+    public void writeBehindRereadsAfterTtl() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000, 100, 60_000, 0);
+        var game = cached.createGame("shared", null);
+        var theirs = new ChessGame();
+        theirs.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.updateGame(game.gameID(), theirs);
+        gameDAO.joinGame(new AuthData("token", "a"), "WHITE", game.gameID());
+
+        var read = cached.getVersionedGame(game.gameID());
+        assertEquals(1, read.version());
+        assertEquals(theirs, read.game().game());
+        assertEquals("a", read.game().whiteUsername());
+        cached.close();
+    }
+
+    @Test
+    @Order(32)
+    public void writeBehindEvictsLeastRecentlyRead() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000, 1, 60_000, 60_000);
+        var first = cached.createGame("first", null);
+        cached.createGame("second", null);
+        gameDAO.updateGame(first.gameID(), new ChessGame());
+        assertEquals(1, cached.getVersionedGame(first.gameID()).version());
+        cached.close();
+    }
+
+    @Test
+    @Order(33)
+    public void writeThroughReportsConflict() throws Exception {
+        var cached = new WriteBehindGameDAO(gameDAO, 0);
+        var game = cached.createGame("write-through", null);
+        gameDAO.updateGame(game.gameID(), new ChessGame());
+
+        var mine = new ChessGame();
+        mine.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertNull(cached.updateGame(game.gameID(), mine, 0));
+        assertEquals(1, cached.getVersionedGame(game.gameID()).version());
+        assertEquals(ChessGame.TeamColor.WHITE, cached.getGame(game.gameID()).game().getTeamTurn());
+        cached.close();
+    }
+
+    @Test
+    @Order(34)
+    public void cachedAuthIgnoresLookupRacingDelete() throws Exception {
+        var cache = new CachedAuthDAO[1];
+        var racing = new SQLAuthDAO() {
+            @Override
+            public AuthData getAuth(String token) throws ResponseException {
+                var found = super.getAuth(token);
+                if (found != null) {
+                    cache[0].deleteAuth(found);
+                }
+                return found;
+            }
+        };
+        cache[0] = new CachedAuthDAO(racing, 100, 60_000);
+        var auth = authDAO.createAuth(new UserData("a", "p", "a@a.com"));
+        assertEquals(auth, cache[0].getAuth(auth.authToken()));
+        assertNull(cache[0].getAuth(auth.authToken()));
+        assertEquals(0, cache[0].stats().size());
+    }
+
+    @Test
+    @Order(35)
+    public void moveAfterOverwriteSurvivesReload() throws Exception {
+        var game = gameDAO.createGame("overwritten", null);
+        var board = new ChessGame();
+        gameDAO.updateGame(game.gameID(), board);
+        var stored = gameDAO.getVersionedGame(game.gameID());
+        assertEquals(1, stored.version());
+
+        var cached = new WriteBehindGameDAO(gameDAO, 60_000);
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        board.makeMove(move);
+        assertNotNull(cached.updateGame(game.gameID(), board, stored.version(), move));
+        cached.close();
+
+        var reloaded = gameDAO.getVersionedGame(game.gameID());
+        assertEquals(2, reloaded.version());
+        assertEquals(board, reloaded.game().game());
+    }
+
+    @Test
+    @Order(36)
+    public void failedWriteThroughDropsCachedUpdate() throws Exception {
+        var failing = new SQLGameDAO() {
+            @Override
+            public Set<Integer> updateStates(Map<Integer, StateUpdate> updates) throws ResponseException {
+                throw new ResponseException(500, "Error: database unavailable");
+            }
+        };
+        var cached = new WriteBehindGameDAO(failing, 0);
+        var game = cached.createGame("failed write-through", null);
+        var mine = new ChessGame();
+        mine.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertThrows(ResponseException.class, () -> cached.updateGame(game.gameID(), mine, 0));
+
+        var reloaded = cached.getVersionedGame(game.gameID());
+        assertEquals(0, reloaded.version());
+        assertEquals(ChessGame.TeamColor.WHITE, reloaded.game().game().getTeamTurn());
+        assertTrue(cached.flush().isEmpty());
+        cached.close();
+    }
 }
@@ -0,0 +1,45 @@
+package server;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the server swaps Spark's plain connector for one that runs requests on virtual
+ * threads, listening at the same address
+ */
+public class VirtualThreadConnectorTest {
+
+    @Test
+    public void plainConnectorSwapped() {
+        var server = VirtualThreadConnector.newServer(new QueuedThreadPool());
+        var factory = new HttpConnectionFactory();
+        var plain = new ServerConnector(server, factory);
+        plain.setHost("127.0.0.1");
+        plain.setPort(8123);
+        plain.setIdleTimeout(1234);
+        server.setConnectors(new Connector[]{plain});
+
+        var connectors = server.getConnectors();
+        Assertions.assertEquals(1, connectors.length);
+        var swapped = Assertions.assertInstanceOf(VirtualThreadConnector.class, connectors[0]);
+        Assertions.assertEquals("127.0.0.1", swapped.getHost());
+        Assertions.assertEquals(8123, swapped.getPort());
+        Assertions.assertEquals(1234, swapped.getIdleTimeout());
+        Assertions.assertEquals(0, swapped.getAcceptors());
+        Assertions.assertTrue(swapped.getConnectionFactories().contains(factory));
+        Assertions.assertInstanceOf(VirtualThreadExecutor.class, swapped.getExecutor());
+    }
+
+    @Test
+    public void otherConnectorsKept() {
+        var server = VirtualThreadConnector.newServer(new QueuedThreadPool());
+        var custom = new ServerConnector(server, new HttpConnectionFactory()) {
+        };
+        server.setConnectors(new Connector[]{custom});
+        Assertions.assertSame(custom, server.getConnectors()[0]);
+    }
+}
@@ -0,0 +1,80 @@
+package server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that request tasks run on virtual threads and that stopping lets them finish
+ */
+public class VirtualThreadExecutorTest {
+
+    @Test
+    public void runsTasksOnVirtualThreads() throws Exception {
+        var executor = new VirtualThreadExecutor("test");
+        executor.start();
+        var virtual = new AtomicBoolean();
+        var done = new CountDownLatch(1);
+        executor.execute(() -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            done.countDown();
+        });
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(virtual.get());
+        executor.stop();
+    }
+
+    @Test
+    public void stopWaitsForRunningTasks() throws Exception {
+        var executor = new VirtualThreadExecutor("test");
+        executor.start();
+        var started = new CountDownLatch(1);
+        var finished = new AtomicBoolean();
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+                finished.set(true);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.stop();
+        Assertions.assertTrue(finished.get(), "running task finished before stop returned");
+    }
+
+    @Test
+    public void stopInterruptsTasksPastTimeout() throws Exception {
+        var executor = new VirtualThreadExecutor("test");
+        executor.setStopTimeout(50);
+        executor.start();
+        var started = new CountDownLatch(1);
+        var interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.stop();
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void refusesTasksWhenStopped() throws Exception {
+        var executor = new VirtualThreadExecutor("test");
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+        executor.start();
+        executor.stop();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+    }
+}
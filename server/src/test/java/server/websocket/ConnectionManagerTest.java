@@ -0,0 +1,90 @@
+package server.websocket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ErrorMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+/**
+ * Checks that a socket's registrations share one send queue and that the indexes forget
+ * connections once they are removed
+ */
+public class ConnectionManagerTest {
+    private final ConnectionManager connections = new ConnectionManager();
+
+    @Test
+    public void gamesOfOneSocketShareItsQueue() {
+        var client = new FakeSession();
+        connections.add(1, client.session, "token");
+        connections.add(2, client.session, "token");
+        connections.generalBroadcast(1, notification("one"));
+        connections.generalBroadcast(2, notification("two"));
+
+        Assertions.assertEquals(1, client.inFlight());
+        var stats = connections.sendStats();
+        Assertions.assertEquals(1, stats.connections());
+        Assertions.assertEquals(1, stats.queuedFrames());
+        client.drain();
+        Assertions.assertEquals(2, client.written.size());
+    }
+
+    @Test
+    public void replyQueuesBehindGameFrames() {
+        var client = new FakeSession();
+        connections.add(1, client.session, "token");
+        connections.generalBroadcast(1, notification("one"));
+        connections.reply(client.session, new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: bad"), false);
+
+        Assertions.assertEquals(1, client.written.size());
+        client.drain();
+        Assertions.assertEquals(2, client.written.size());
+        Assertions.assertTrue(client.written.get(1).contains("Error: bad"));
+    }
+
+    @Test
+    public void removingSessionClearsEveryIndex() {
+        var client = new FakeSession();
+        connections.add(1, client.session, "token");
+        connections.add(2, client.session, "token");
+        connections.remove(client.session);
+
+        Assertions.assertFalse(connections.isConnected(1, "token"));
+        Assertions.assertFalse(connections.isConnected(2, "token"));
+        Assertions.assertEquals(0, connections.sendStats().connections());
+        connections.generalBroadcast(1, notification("nobody"));
+        Assertions.assertTrue(client.written.isEmpty());
+    }
+
+    @Test
+    public void removingAuthKeepsItsOtherGames() {
+        var client = new FakeSession();
+        connections.add(1, client.session, "token");
+        connections.add(2, client.session, "token");
+        connections.remove(1, "token");
+
+        Assertions.assertFalse(connections.isConnected(1, "token"));
+        Assertions.assertTrue(connections.isConnected(2, "token"));
+        connections.generalBroadcast(2, notification("still here"));
+        Assertions.assertEquals(1, client.written.size());
+    }
+
+    @Test
+    public void closedSessionDroppedOnBroadcast() {
+        var watcher = new FakeSession();
+        var gone = new FakeSession();
+        connections.add(1, watcher.session, "watcher");
+        connections.add(1, gone.session, "gone");
+        gone.open = false;
+        connections.generalBroadcast(1, notification("hello"));
+
+        Assertions.assertFalse(connections.isConnected(1, "gone"));
+        Assertions.assertTrue(connections.isConnected(1, "watcher"));
+        Assertions.assertEquals(1, connections.sendStats().connections());
+        Assertions.assertTrue(gone.written.isEmpty());
+    }
+
+    private static NotificationMessage notification(String message) {
+        return new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, message);
+    }
+}
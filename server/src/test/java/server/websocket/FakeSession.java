@@ -0,0 +1,66 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A websocket session whose asynchronous writes only complete when the test says so, standing in
+ * for a client that reads as slowly as the test needs
+ */
+class FakeSession {
+    final Session session;
+    final List<String> written = new ArrayList<>();
+    private final ArrayDeque<WriteCallback> inFlight = new ArrayDeque<>();
+    boolean open = true;
+    boolean failSends;
+
+    FakeSession() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (failSends) {
+                        throw new IllegalStateException("socket is blocked");
+                    }
+                    var data = args[0];
+                    written.add(data instanceof ByteBuffer bytes
+                            ? StandardCharsets.UTF_8.decode(bytes).toString() : (String) data);
+                    inFlight.add((WriteCallback) args[1]);
+                    return null;
+                });
+        session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open;
+                    case "getRemote" -> remote;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    /**
+     * Completes the oldest write still in flight, which lets the queue start the next one
+     */
+    void completeWrite() {
+        inFlight.poll().writeSuccess();
+    }
+
+    /**
+     * Completes writes until nothing is in flight
+     */
+    void drain() {
+        while (!inFlight.isEmpty()) {
+            completeWrite();
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,99 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that each game's commands run one at a time in order while different games run at once
+ */
+public class GameMailboxesTest {
+    private final GameMailboxes mailboxes = new GameMailboxes();
+
+    @AfterEach
+    public void teardown() {
+        mailboxes.close();
+    }
+
+    @Test
+    public void runsGameCommandsInOrder() throws Exception {
+        var order = Collections.synchronizedList(new ArrayList<Integer>());
+        var done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            int command = i;
+            Assertions.assertTrue(mailboxes.submit(1, () -> {
+                order.add(command);
+                done.countDown();
+            }, e -> Assertions.fail(e)));
+        }
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        Assertions.assertEquals(expected, order);
+    }
+
+    @Test
+    public void runsGamesInParallel() throws Exception {
+        var otherGameRan = new CountDownLatch(1);
+        var waited = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            if (otherGameRan.await(5, TimeUnit.SECONDS)) {
+                waited.countDown();
+            }
+        }, e -> {
+        });
+        mailboxes.submit(2, otherGameRan::countDown, e -> {
+        });
+        Assertions.assertTrue(waited.await(10, TimeUnit.SECONDS), "game 2 ran while game 1 was busy");
+    }
+
+    @Test
+    public void failureReportedAndNextCommandRuns() throws Exception {
+        var failure = new AtomicReference<Exception>();
+        var next = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            throw new IllegalStateException("bad command");
+        }, failure::set);
+        mailboxes.submit(1, next::countDown, e -> {
+        });
+        Assertions.assertTrue(next.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("bad command", failure.get().getMessage());
+    }
+
+    @Test
+    public void mailboxRemovedAfterLastCommand() throws Exception {
+        var done = new CountDownLatch(2);
+        mailboxes.submit(1, done::countDown, e -> {
+        });
+        mailboxes.submit(2, done::countDown, e -> {
+        });
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mailboxes.activeGames() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(0, mailboxes.activeGames());
+
+        var again = new CountDownLatch(1);
+        Assertions.assertTrue(mailboxes.submit(1, again::countDown, e -> {
+        }));
+        Assertions.assertTrue(again.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closedMailboxesRefuseCommands() {
+        mailboxes.close();
+        Assertions.assertFalse(mailboxes.submit(1, () -> {
+        }, e -> {
+        }));
+        Assertions.assertEquals(0, mailboxes.activeGames());
+    }
+}
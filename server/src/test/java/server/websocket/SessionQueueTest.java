@@ -0,0 +1,88 @@
+package server.websocket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the outbound queue's ordering, snapshot coalescing and dropping against a client that
+ * only reads when told to
+ */
+public class SessionQueueTest {
+
+    @Test
+    public void writesOneFrameAtATime() {
+        var client = new FakeSession();
+        var queue = new SessionQueue(client.session);
+        queue.send("a", 0);
+        queue.send("b", 0);
+        queue.send("c", 0);
+        Assertions.assertEquals(List.of("a"), client.written);
+        Assertions.assertEquals(2, queue.queueDepth());
+
+        client.drain();
+        Assertions.assertEquals(List.of("a", "b", "c"), client.written);
+        Assertions.assertEquals(0, queue.queueDepth());
+    }
+
+    @Test
+    public void coalescesSnapshotsOfTheSameGame() {
+        var client = new FakeSession();
+        var queue = new SessionQueue(client.session);
+        queue.send("note", 0);
+        queue.send("game 1 v1", 1);
+        queue.send("game 2 v1", 2);
+        queue.send("game 1 v2", 1);
+        Assertions.assertEquals(1, queue.coalescedFrames());
+
+        client.drain();
+        Assertions.assertEquals(List.of("note", "game 2 v1", "game 1 v2"), client.written);
+    }
+
+    @Test
+    public void dropsOldestNotificationWhenFull() {
+        var client = new FakeSession();
+        var queue = new SessionQueue(client.session);
+        queue.send("in flight", 0);
+        queue.send("snapshot", 1);
+        var expected = new ArrayList<>(List.of("in flight", "snapshot"));
+        for (int i = 0; i < SessionQueue.MAX_QUEUED_FRAMES; i++) {
+            queue.send("note " + i, 0);
+            if (i > 0) {
+                expected.add("note " + i);
+            }
+        }
+        Assertions.assertEquals(1, queue.droppedFrames());
+        Assertions.assertEquals(SessionQueue.MAX_QUEUED_FRAMES, queue.queueDepth());
+
+        client.drain();
+        Assertions.assertEquals(expected, client.written);
+    }
+
+    @Test
+    public void sendingAgainAfterSynchronousFailure() {
+        var client = new FakeSession();
+        var queue = new SessionQueue(client.session);
+        client.failSends = true;
+        queue.send("lost", 0);
+        client.failSends = false;
+        queue.send("delivered", 0);
+        Assertions.assertEquals(List.of("delivered"), client.written);
+    }
+
+    @Test
+    public void closedClientAbandonsQueue() {
+        var client = new FakeSession();
+        var queue = new SessionQueue(client.session);
+        queue.send("a", 0);
+        queue.send("b", 0);
+        queue.send("c", 0);
+        client.open = false;
+        client.completeWrite();
+        Assertions.assertEquals(0, queue.queueDepth());
+        Assertions.assertEquals(1, queue.droppedFrames());
+        Assertions.assertEquals(List.of("a"), client.written);
+    }
+}
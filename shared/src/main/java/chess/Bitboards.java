@@ -0,0 +1,56 @@
+package chess;
+
+/**
+ * Square indexing helpers for the 64-bit board representation.
+ * <p>
+ * Square 0 is row 1, column 1 (a1) and square 63 is row 8, column 8 (h8),
+ * so bit {@code (row - 1) * 8 + (col - 1)} of a bitboard marks that square.
+ */
+public final class Bitboards {
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_8 = RANK_1 << 56;
+
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            POSITIONS[sq] = new ChessPosition(row(sq), column(sq));
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /**
+     * @return a shared, immutable position for the given square index
+     */
+    public static ChessPosition position(int square) {
+        return POSITIONS[square];
+    }
+
+    static long bit(int square) {
+        return 1L << square;
+    }
+}
@@ -1,7 +1,6 @@
 package chess;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -10,7 +9,31 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessBoard {
-    private ChessPiece[][] squares = new ChessPiece[9][9];
+    private static final int PIECE_TYPES = ChessPiece.PieceType.values().length;
+    private static final ChessPiece[] PIECES = new ChessPiece[2 * PIECE_TYPES];
+    private static final int NO_PIECE = 15;
+
+    static {
+        for (var color : ChessGame.TeamColor.values()) {
+            for (var type : ChessPiece.PieceType.values()) {
+                PIECES[index(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    /**
+     * One bitboard per color and piece type, indexed by {@link #index}
+     */
+    private final long[] pieceBoards = new long[2 * PIECE_TYPES];
+    /**
+     * Occupancy of each team, indexed by {@link ChessGame.TeamColor#ordinal()}
+     */
+    private final long[] colorBoards = new long[2];
+    private long occupied;
+    /**
+     * Zobrist key of the pieces on the board, kept in step by every change to the bitboards
+     */
+    private long zobristKey;
 
     @Override
     public boolean equals(Object o) {
@@ -21,12 +44,19 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        return zobristKey == that.zobristKey && Arrays.equals(pieceBoards, that.pieceBoards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(zobristKey);
+    }
+
+    /**
+     * @return 64-bit Zobrist key of the pieces on the board
+     */
+    public long getZobristKey() {
+        return zobristKey;
     }
 
     public ChessBoard() {
@@ -40,7 +70,16 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()][position.getColumn()] = piece;
+        int square = Bitboards.square(position);
+        clearSquare(square);
+        if (piece != null) {
+            long bit = Bitboards.bit(square);
+            int index = index(piece.getTeamColor(), piece.getPieceType());
+            zobristKey ^= Zobrist.key(index, square);
+            pieceBoards[index] |= bit;
+            colorBoards[piece.getTeamColor().ordinal()] |= bit;
+            occupied |= bit;
+        }
     }
 
     /**
@@ -51,7 +90,191 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow()][position.getColumn()];
+        return pieceAt(Bitboards.square(position));
+    }
+
+    ChessPiece pieceAt(int square) {
+        int index = indexAt(square);
+        return index == NO_PIECE ? null : PIECES[index];
+    }
+
+    private void clearSquare(int square) {
+        int index = indexAt(square);
+        if (index == NO_PIECE) {
+            return;
+        }
+        long mask = ~Bitboards.bit(square);
+        zobristKey ^= Zobrist.key(index, square);
+        pieceBoards[index] &= mask;
+        colorBoards[0] &= mask;
+        colorBoards[1] &= mask;
+        occupied &= mask;
+    }
+
+    /**
+     * Moves the piece on one square to another in place, capturing whatever stands on the
+     * target square and optionally promoting the moved piece.
+     * <p>
+     * The returned undo record packs the from square (bits 0-5), the to square (bits 6-11),
+     * the moved piece (bits 12-15) and the captured piece (bits 16-19, 15 when nothing was
+     * captured); bits 20 and up are left free for the caller.
+     *
+     * @return the undo record to hand back to {@link #unmakeMove(int)}
+     */
+    int makeMove(int from, int to, ChessPiece.PieceType promotion) {
+        int moved = indexAt(from);
+        int captured = indexAt(to);
+        long fromBit = Bitboards.bit(from);
+        long toBit = Bitboards.bit(to);
+        int color = moved / PIECE_TYPES;
+        if (captured != NO_PIECE) {
+            pieceBoards[captured] &= ~toBit;
+            colorBoards[1 - color] &= ~toBit;
+            zobristKey ^= Zobrist.key(captured, to);
+        }
+        int placed = promotion == null ? moved : color * PIECE_TYPES + promotion.ordinal();
+        zobristKey ^= Zobrist.key(moved, from) ^ Zobrist.key(placed, to);
+        pieceBoards[moved] &= ~fromBit;
+        pieceBoards[placed] |= toBit;
+        colorBoards[color] ^= fromBit | toBit;
+        occupied = (occupied & ~fromBit) | toBit;
+        return from | to << 6 | moved << 12 | captured << 16;
+    }
+
+    /**
+     * Reverses a move made with {@link #makeMove}, restoring the moved piece,
+     * any promotion and any captured piece.
+     */
+    void unmakeMove(int undo) {
+        int from = undo & 63;
+        int to = (undo >>> 6) & 63;
+        int moved = (undo >>> 12) & 15;
+        int captured = (undo >>> 16) & 15;
+        long fromBit = Bitboards.bit(from);
+        long toBit = Bitboards.bit(to);
+        int color = moved / PIECE_TYPES;
+        int placed = indexAt(to);
+        zobristKey ^= Zobrist.key(moved, from) ^ Zobrist.key(placed, to);
+        pieceBoards[placed] &= ~toBit;
+        pieceBoards[moved] |= fromBit;
+        colorBoards[color] ^= fromBit | toBit;
+        occupied |= fromBit;
+        if (captured != NO_PIECE) {
+            pieceBoards[captured] |= toBit;
+            colorBoards[1 - color] |= toBit;
+            zobristKey ^= Zobrist.key(captured, to);
+        } else {
+            occupied &= ~toBit;
+        }
+    }
+
+    private int indexAt(int square) {
+        long bit = Bitboards.bit(square);
+        if ((occupied & bit) == 0) {
+            return NO_PIECE;
+        }
+        int first = (colorBoards[0] & bit) != 0 ? 0 : PIECE_TYPES;
+        for (int i = first; i < first + PIECE_TYPES; i++) {
+            if ((pieceBoards[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return NO_PIECE;
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color and type
+     */
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceBoards[index(color, type)];
+    }
+
+    /**
+     * Places pieces of one color and type on every square in the bitboard that is still empty
+     */
+    void addPieces(ChessGame.TeamColor color, ChessPiece.PieceType type, long squares) {
+        int index = index(color, type);
+        long placed = squares & ~occupied;
+        for (long rest = placed; rest != 0; rest &= rest - 1) {
+            zobristKey ^= Zobrist.key(index, Long.numberOfTrailingZeros(rest));
+        }
+        pieceBoards[index] |= placed;
+        colorBoards[color.ordinal()] |= placed;
+        occupied |= placed;
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color
+     */
+    long pieces(ChessGame.TeamColor color) {
+        return colorBoards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return square index of the given team's king, or 64 if that team has no king on the board
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        return Long.numberOfTrailingZeros(pieces(color, ChessPiece.PieceType.KING));
+    }
+
+    /**
+     * Casts rays and jump patterns outward from a square to see whether any piece of the
+     * attacking team reaches it.
+     *
+     * @param square   the square index to test
+     * @param attacker the team whose pieces may attack the square
+     * @return True if a piece of the attacking team attacks the square
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(square, attacker, occupied);
+    }
+
+    /**
+     * Same as {@link #isSquareAttacked(int, ChessGame.TeamColor)}, but sliding pieces see the
+     * given occupancy instead of the board's, e.g. with a king lifted off its square.
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker, long occupancy) {
+        ChessGame.TeamColor defender = ChessGame.opponent(attacker);
+        if ((Attacks.pawn(defender, square) & pieces(attacker, ChessPiece.PieceType.PAWN)) != 0) {
+            return true;
+        }
+        if ((Attacks.knight(square) & pieces(attacker, ChessPiece.PieceType.KNIGHT)) != 0) {
+            return true;
+        }
+        if ((Attacks.king(square) & pieces(attacker, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+        long diagonal = pieces(attacker, ChessPiece.PieceType.BISHOP) | queens;
+        if (diagonal != 0 && (Attacks.bishop(square, occupancy) & diagonal) != 0) {
+            return true;
+        }
+        long straight = pieces(attacker, ChessPiece.PieceType.ROOK) | queens;
+        return straight != 0 && (Attacks.rook(square, occupancy) & straight) != 0;
+    }
+
+    /**
+     * @return bitboard of every piece of the attacking team that attacks the given square
+     */
+    long attackersOf(int square, ChessGame.TeamColor attacker) {
+        ChessGame.TeamColor defender = ChessGame.opponent(attacker);
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (Attacks.pawn(defender, square) & pieces(attacker, ChessPiece.PieceType.PAWN))
+                | (Attacks.knight(square) & pieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (Attacks.king(square) & pieces(attacker, ChessPiece.PieceType.KING))
+                | (Attacks.bishop(square, occupied) & (pieces(attacker, ChessPiece.PieceType.BISHOP) | queens))
+                | (Attacks.rook(square, occupied) & (pieces(attacker, ChessPiece.PieceType.ROOK) | queens));
+    }
+
+    private static int index(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
     }
 
     /**
@@ -77,13 +300,13 @@ public class ChessBoard {
 
     private void setupRow(int row, ChessGame.TeamColor color, ChessPiece.PieceType piece) {
         for (int col = 0; col < 8; col++) {
-            squares[row][col + 1] = new ChessPiece(color, piece);
+            addPiece(Bitboards.position(Bitboards.square(row, col + 1)), PIECES[index(color, piece)]);
         }
     }
 
     private void setupRow(int row, ChessGame.TeamColor color, ChessPiece.PieceType[] piece) {
         for (int col = 0; col < 8; col++) {
-            squares[row][col + 1] = new ChessPiece(color, piece[col]);
+            addPiece(Bitboards.position(Bitboards.square(row, col + 1)), PIECES[index(color, piece[col])]);
         }
     }
 }
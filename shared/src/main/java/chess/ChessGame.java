@@ -1,7 +1,9 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -14,6 +16,12 @@ public class ChessGame {
     private ChessBoard myBoard;
     private TeamColor teamTurn;
     private Boolean gameOver;
+    /**
+     * Undo records for moves made with {@link #pushMove}; each is the board's undo record
+     * with the previous turn stored in bit 20
+     */
+    private transient int[] undoStack = new int[8];
+    private transient int undoDepth;
 
     public ChessGame() {
         myBoard = new ChessBoard();
@@ -22,6 +30,15 @@ public class ChessGame {
         gameOver = false;
     }
 
+    /**
+     * Builds a game around an existing board without setting up a fresh one first
+     */
+    ChessGame(ChessBoard board, TeamColor teamTurn, Boolean gameOver) {
+        this.myBoard = board;
+        this.teamTurn = teamTurn;
+        this.gameOver = gameOver;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -31,12 +48,22 @@ public class ChessGame {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
-        return Objects.equals(myBoard, chessGame.myBoard) && teamTurn == chessGame.teamTurn;
+        return getPositionKey() == chessGame.getPositionKey() && teamTurn == chessGame.teamTurn
+                && Objects.equals(myBoard, chessGame.myBoard);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(myBoard, teamTurn);
+        return Long.hashCode(getPositionKey());
+    }
+
+    /**
+     * @return 64-bit Zobrist key of the position: the board's key, combined with
+     * the side to move
+     */
+    public long getPositionKey() {
+        long key = myBoard == null ? 0 : myBoard.getZobristKey();
+        return teamTurn == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
     }
 
     /**
@@ -71,30 +98,23 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessBoard board = getBoard();
-        ChessPiece piece = board.getPiece(startPosition);
-        return checkMoves(startPosition, piece.getTeamColor(), board);
+        ChessPiece piece = myBoard.getPiece(startPosition);
+        if (piece == null) {
+            return null;
+        }
+        List<ChessMove> moves = new ArrayList<>();
+        new MoveGenerator(myBoard, piece.getTeamColor()).addMoves(moves, startPosition);
+        return moves;
     }
 
-    private Collection<ChessMove> checkMoves(ChessPosition startPosition, TeamColor teamColor, ChessBoard board) {
-        Collection<ChessMove> validMoves = new ArrayList<>();
-        ChessPiece piece = board.getPiece(startPosition);
-        Collection<ChessMove> tempMoves = piece.pieceMoves(board, startPosition);
-
-        ChessBoard originalBoard = copyBoard(board);
-        for (ChessMove move : tempMoves) {
-            try {
-                moving(move, piece);
-            } catch (InvalidMoveException e) {
-                continue;
-            }
-            if (!isInCheck(teamColor)) {
-                validMoves.add(move);
-            }
-            setBoard(copyBoard(originalBoard));
-        }
-        setBoard(copyBoard(originalBoard));
-        return validMoves;
+    /**
+     * Gets every valid move for a team in one pass over its pieces
+     *
+     * @param teamColor the team to get valid moves for
+     * @return every move the team can legally make
+     */
+    public Collection<ChessMove> allValidMoves(TeamColor teamColor) {
+        return new MoveGenerator(myBoard, teamColor).moves();
     }
 
     /**
@@ -115,27 +135,43 @@ public class ChessGame {
         if (!validMoves.contains(move)) {
             throw new InvalidMoveException("Invalid move: not a piece move");
         }
-        moving(move, piece);
-        if (piece.getTeamColor() == TeamColor.BLACK) {
-            setTeamTurn(TeamColor.WHITE);
-        } else {
-            setTeamTurn(TeamColor.BLACK);
-        }
+        myBoard.makeMove(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece());
+        setTeamTurn(opponent(piece.getTeamColor()));
     }
 
-    private void moving(ChessMove move, ChessPiece piece) throws InvalidMoveException {
-        ChessBoard board = getBoard();
-        ChessPosition endPosition = move.getEndPosition();
-        if (endPosition.getRow() > 8 || endPosition.getRow() < 1 || endPosition.getColumn() > 8 || endPosition.getColumn() < 1) {
-            throw new InvalidMoveException("Invalid move: out of bounds");
-        }
-        if (move.getPromotionPiece() != null) {
-            board.addPiece(endPosition, new ChessPiece(teamTurn, move.getPromotionPiece()));
-        } else {
-            board.addPiece(endPosition, piece);
+    /**
+     * Plays a move that was already checked when it was first made, such as one read back
+     * from a game's move log, without generating moves to validate it again
+     */
+    public void replayMove(ChessMove move) {
+        ChessPiece piece = myBoard.getPiece(move.getStartPosition());
+        myBoard.makeMove(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece());
+        setTeamTurn(opponent(piece.getTeamColor()));
+    }
+
+    /**
+     * Plays a move on the board in place without checking it, handing the turn to the
+     * other team. Reverse it with {@link #popMove()}.
+     */
+    void pushMove(ChessMove move) {
+        int undo = myBoard.makeMove(Bitboards.square(move.getStartPosition()),
+                Bitboards.square(move.getEndPosition()), move.getPromotionPiece());
+        if (undoDepth == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoDepth * 2);
         }
-        board.addPiece(move.getStartPosition(), null);
-        setBoard(board);
+        undoStack[undoDepth++] = undo | teamTurn.ordinal() << 20;
+        teamTurn = opponent(myBoard.pieceAt(Bitboards.square(move.getEndPosition())).getTeamColor());
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #pushMove}, including the turn.
+     */
+    void popMove() {
+        int undo = undoStack[--undoDepth];
+        myBoard.unmakeMove(undo);
+        teamTurn = (undo >>> 20) == 0 ? TeamColor.WHITE : TeamColor.BLACK;
     }
 
 
@@ -147,54 +183,43 @@ public class ChessGame {
      */
     public boolean isInCheck(TeamColor teamColor) {
         ChessBoard board = getBoard();
-        ChessPosition king = kingPosition(teamColor, board);
-
-        Collection<ChessMove> opponentMoves = checkOpponentMove(teamColor, king, board);
-        return !opponentMoves.isEmpty();
+        int king = board.kingSquare(teamColor);
+        if (king == 64) {
+            return false;
+        }
+        return board.isSquareAttacked(king, opponent(teamColor));
     }
 
-    private ChessPosition kingPosition(TeamColor teamColor, ChessBoard board) {
-        ChessPosition king = null;
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-                if (piece != null) {
-                    if (piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                        king = new ChessPosition(row, col);
-                    }
-                }
-            }
-        }
-        return king;
+    static TeamColor opponent(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
-    private Collection<ChessMove> checkOpponentMove(TeamColor teamColor, ChessPosition king, ChessBoard board) {
-        Collection<ChessMove> opponentMoves = new ArrayList<>();
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                opponentMoves.addAll(checkMovesOpponent(teamColor, king, board, row, col));
-            }
-        }
-        return opponentMoves;
+    /**
+     * The state of a team after the last move: free to play, in check,
+     * checkmated, or stalemated
+     */
+    public enum GameStatus {
+        PLAYING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
     }
 
-    private Collection<ChessMove> checkMovesOpponent(TeamColor teamColor, ChessPosition king, ChessBoard board, int row, int col) {
-        Collection<ChessMove> opponentMoves = new ArrayList<>();
-        ChessPosition opponentPosition = new ChessPosition(row, col);
-        ChessPiece piece = myBoard.getPiece(opponentPosition);
-        if (piece != null) {
-            if (teamColor != piece.getTeamColor()) {
-                Collection<ChessMove> moves = piece.pieceMoves(board, opponentPosition);
-                for (ChessMove move : moves) {
-                    ChessPosition enemy = move.getEndPosition();
-                    if (enemy.equals(king)) {
-                        opponentMoves.addAll(moves);
-                        break;
-                    }
-                }
-            }
+    /**
+     * Works out check, checkmate and stalemate for a team together, without
+     * generating the team's moves more than once. Checkmate and stalemate end the game.
+     *
+     * @param teamColor which team to evaluate
+     * @return the team's status
+     */
+    public GameStatus getStatus(TeamColor teamColor) {
+        MoveGenerator generator = new MoveGenerator(myBoard, teamColor);
+        boolean inCheck = generator.inCheck();
+        if (generator.hasLegalMove()) {
+            return inCheck ? GameStatus.CHECK : GameStatus.PLAYING;
         }
-        return opponentMoves;
+        gameOver = true;
+        return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
     }
 
     /**
@@ -204,35 +229,12 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
+        MoveGenerator generator = new MoveGenerator(myBoard, teamColor);
+        if (!generator.inCheck() || generator.hasLegalMove()) {
             return false;
         }
-        Collection<ChessPosition> teamPieces = getTeamPositions(teamColor);
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-
-        for (ChessPosition piece : teamPieces) {
-            possibleMoves.addAll(validMoves(piece));
-        }
-        if (possibleMoves.isEmpty()){
-            gameOver = true;
-        }
-        return possibleMoves.isEmpty();
-    }
-
-    private Collection<ChessPosition> getTeamPositions(TeamColor teamColor) {
-        Collection<ChessPosition> teamPieces = new ArrayList<>();
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = myBoard.getPiece(position);
-                if (piece != null) {
-                    if (piece.getTeamColor() == teamColor) {
-                        teamPieces.add(position);
-                    }
-                }
-            }
-        }
-        return teamPieces;
+        gameOver = true;
+        return true;
     }
 
     /**
@@ -243,21 +245,12 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
+        MoveGenerator generator = new MoveGenerator(myBoard, teamColor);
+        if (generator.inCheck() || generator.hasLegalMove()) {
             return false;
         }
-
-        Collection<ChessPosition> teamPieces = getTeamPositions(teamColor);
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-
-        for (ChessPosition piece : teamPieces) {
-            possibleMoves.addAll(validMoves(piece));
-        }
-        if (possibleMoves.isEmpty()){
-            gameOver = true;
-        }
-
-        return possibleMoves.isEmpty();
+        gameOver = true;
+        return true;
     }
 
     /**
@@ -267,6 +260,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         myBoard = board;
+        undoDepth = 0;
     }
 
     public void resignGame(){
@@ -277,18 +271,6 @@ public class ChessGame {
         return gameOver;
     }
 
-    private ChessBoard copyBoard(ChessBoard board) {
-        ChessBoard newBoard = new ChessBoard();
-        for (int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                newBoard.addPiece(position, piece);
-            }
-        }
-        return newBoard;
-    }
-
     /**
      * Gets the current chessboard
      *
@@ -0,0 +1,109 @@
+package chess;
+
+/**
+ * Compact binary encoding of a game's state.
+ * <p>
+ * Bytes 0-31 hold one nibble per square, square 0 (row 1, column 1) in the low nibble of
+ * byte 0: 0 for an empty square, otherwise one plus the piece index (white king through
+ * white pawn, then black). Byte 32 holds flags: bit 0 is set when black is to move, bit 1
+ * when the game is over, and the high nibble is the format version.
+ */
+public final class ChessGameCodec {
+    public static final int LENGTH = 33;
+    private static final int VERSION = 1;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private ChessGameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[LENGTH];
+        encodeBoard(game.getBoard(), bytes, 0);
+        int flags = VERSION << 4;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (Boolean.TRUE.equals(game.getGameOver())) {
+            flags |= GAME_OVER;
+        }
+        bytes[32] = (byte) flags;
+        return bytes;
+    }
+
+    public static ChessGame decode(byte[] bytes) {
+        return decode(bytes, 0);
+    }
+
+    /**
+     * Reads a game encoded at the given offset, such as inside a larger message
+     */
+    public static ChessGame decode(byte[] bytes, int offset) {
+        if (bytes == null || bytes.length - offset < LENGTH || (bytes[offset + 32] & 0xF0) >>> 4 != VERSION) {
+            throw new IllegalArgumentException("Not an encoded chess game");
+        }
+        int flags = bytes[offset + 32];
+        return new ChessGame(decodeBoard(bytes, offset),
+                (flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                (flags & GAME_OVER) != 0);
+    }
+
+    /**
+     * Packs a move into 15 bits: start square in bits 0-5, end square in bits 6-11, and one
+     * plus the promotion piece's ordinal in bits 12-14, or 0 for no promotion
+     */
+    public static int encodeMove(ChessMove move) {
+        int promotion = move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal() + 1;
+        return Bitboards.square(move.getStartPosition()) | Bitboards.square(move.getEndPosition()) << 6
+                | promotion << 12;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the move promotes to anything but a queen, rook,
+     *                                  bishop or knight
+     */
+    public static ChessMove decodeMove(int bits) {
+        int promotion = (bits >>> 12) & 7;
+        ChessPiece.PieceType type = null;
+        if (promotion != 0) {
+            type = promotion <= TYPES.length ? TYPES[promotion - 1] : null;
+            if (type == null || type == ChessPiece.PieceType.KING || type == ChessPiece.PieceType.PAWN) {
+                throw new IllegalArgumentException("Bad promotion piece " + promotion);
+            }
+        }
+        return new ChessMove(Bitboards.position(bits & 63), Bitboards.position((bits >>> 6) & 63), type);
+    }
+
+    /**
+     * Writes the 32-byte packed board starting at the given offset
+     */
+    public static void encodeBoard(ChessBoard board, byte[] bytes, int offset) {
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.pieceAt(sq);
+            if (piece != null) {
+                int nibble = piece.getTeamColor().ordinal() * TYPES.length + piece.getPieceType().ordinal() + 1;
+                bytes[offset + (sq >>> 1)] |= (byte) (nibble << ((sq & 1) * 4));
+            }
+        }
+    }
+
+    /**
+     * Reads a 32-byte packed board starting at the given offset
+     */
+    public static ChessBoard decodeBoard(byte[] bytes, int offset) {
+        var board = new ChessBoard();
+        for (int sq = 0; sq < 64; sq++) {
+            int nibble = (bytes[offset + (sq >>> 1)] >>> ((sq & 1) * 4)) & 0xF;
+            if (nibble != 0) {
+                if (nibble > 2 * TYPES.length) {
+                    throw new IllegalArgumentException("Bad piece code " + nibble + " on square " + sq);
+                }
+                var color = nibble > TYPES.length ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+                board.addPiece(Bitboards.position(sq), new ChessPiece(color, TYPES[(nibble - 1) % TYPES.length]));
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,222 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapters for the chess classes, which work without reflection or intermediate
+ * trees. Positions, moves, pieces and games keep the field names Gson's reflective adapters use.
+ * <p>
+ * Boards differ from the reflective form: each bitboard is written as an unsigned hex string like
+ * {@link websocket.messages.MoveMessage#positionHash}, since clients whose numbers are doubles
+ * would round a 64-bit value. Only {@code pieceBoards} is read back, as hex or as a plain
+ * number, and the other fields are rebuilt from it. A game must have a board and a team to
+ * move; a missing {@code gameOver} reads as false.
+ */
+public final class ChessTypeAdapters {
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private ChessTypeAdapters() {
+    }
+
+    public static final TypeAdapter<ChessPosition> POSITION = new TypeAdapter<ChessPosition>() {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            out.beginObject();
+            out.name("row").value(position.getRow());
+            out.name("col").value(position.getColumn());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            int row = 0;
+            int col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPosition(row, col);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<ChessMove> MOVE = new TypeAdapter<ChessMove>() {
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.beginObject();
+            out.name("startPosition");
+            POSITION.write(out, move.getStartPosition());
+            out.name("endPosition");
+            POSITION.write(out, move.getEndPosition());
+            out.name("promotionPiece").value(name(move.getPromotionPiece()));
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = POSITION.read(in);
+                    case "endPosition" -> end = POSITION.read(in);
+                    case "promotionPiece" -> promotion = readEnum(in, ChessPiece.PieceType.class);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<ChessPiece> PIECE = new TypeAdapter<ChessPiece>() {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.beginObject();
+            out.name("pieceColor").value(name(piece.getTeamColor()));
+            out.name("type").value(name(piece.getPieceType()));
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            ChessGame.TeamColor color = null;
+            ChessPiece.PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = readEnum(in, ChessGame.TeamColor.class);
+                    case "type" -> type = readEnum(in, ChessPiece.PieceType.class);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPiece(color, type);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<ChessBoard> BOARD = new TypeAdapter<ChessBoard>() {
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            out.beginObject();
+            out.name("pieceBoards").beginArray();
+            for (var color : COLORS) {
+                for (var type : TYPES) {
+                    out.value(Long.toHexString(board.pieces(color, type)));
+                }
+            }
+            out.endArray();
+            out.name("colorBoards").beginArray();
+            for (var color : COLORS) {
+                out.value(Long.toHexString(board.pieces(color)));
+            }
+            out.endArray();
+            out.name("occupied").value(Long.toHexString(board.occupied()));
+            out.name("zobristKey").value(Long.toHexString(board.getZobristKey()));
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            var board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("pieceBoards")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int index = 0; in.hasNext(); index++) {
+                    long squares = readBitboard(in);
+                    if (index < COLORS.length * TYPES.length) {
+                        board.addPieces(COLORS[index / TYPES.length], TYPES[index % TYPES.length], squares);
+                    }
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<ChessGame> GAME = new TypeAdapter<ChessGame>() {
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            out.name("myBoard");
+            BOARD.write(out, game.getBoard());
+            out.name("teamTurn").value(name(game.getTeamTurn()));
+            out.name("gameOver").value(game.getGameOver());
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            ChessBoard board = null;
+            ChessGame.TeamColor turn = null;
+            Boolean gameOver = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "myBoard" -> board = BOARD.read(in);
+                    case "teamTurn" -> turn = readEnum(in, ChessGame.TeamColor.class);
+                    case "gameOver" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            gameOver = in.nextBoolean();
+                        }
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (board == null || turn == null) {
+                throw new JsonParseException("A game needs a board and a team to move");
+            }
+            return new ChessGame(board, turn, gameOver != null && gameOver);
+        }
+    }.nullSafe();
+
+    private static long readBitboard(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.STRING) {
+            return in.nextLong();
+        }
+        String hex = in.nextString();
+        try {
+            return Long.parseUnsignedLong(hex, 16);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException("Bad bitboard " + hex);
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Unknown " + type.getSimpleName() + " " + name);
+        }
+    }
+}
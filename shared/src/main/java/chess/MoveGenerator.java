@@ -0,0 +1,177 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Legal move generation for one team in a position.
+ * <p>
+ * Checking and pinned pieces are found once, up front. A non-king move must then land inside
+ * the check-evasion mask (anywhere when not in check, on the checker or between it and the king
+ * under a single check, nowhere under double check), and a pinned piece must also stay on the
+ * line through its king. King moves are tested against enemy attacks with the king lifted off
+ * the board. No move is played to find out whether it is legal.
+ */
+final class MoveGenerator {
+    private final ChessBoard board;
+    private final ChessGame.TeamColor enemy;
+    private final long own;
+    private final int king;
+    private final long checkers;
+    private final long evasionMask;
+    private final long pinned;
+
+    MoveGenerator(ChessBoard board, ChessGame.TeamColor color) {
+        this.board = board;
+        this.enemy = ChessGame.opponent(color);
+        this.own = board.pieces(color);
+        this.king = board.kingSquare(color);
+        if (king == 64) {
+            checkers = 0;
+            evasionMask = ~0L;
+            pinned = 0;
+            return;
+        }
+        checkers = board.attackersOf(king, enemy);
+        if (checkers == 0) {
+            evasionMask = ~0L;
+        } else if ((checkers & (checkers - 1)) == 0) {
+            evasionMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        } else {
+            evasionMask = 0;
+        }
+        pinned = findPinned();
+    }
+
+    private long findPinned() {
+        long queens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long enemyPieces = board.pieces(enemy);
+        long snipers = (Attacks.rook(king, enemyPieces) & (board.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Attacks.bishop(king, enemyPieces) & (board.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+        long result = 0;
+        while (snipers != 0) {
+            long blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & board.occupied();
+            if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                result |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        return result;
+    }
+
+    /**
+     * @return True if the team's king is attacked
+     */
+    boolean inCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * @return bitboard of the squares the team's piece on this square may legally move to
+     */
+    long targets(int square) {
+        ChessPiece piece = board.pieceAt(square);
+        long targets = pseudoTargets(board, piece, square);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            long withoutKing = board.occupied() & ~Bitboards.bit(square);
+            long safe = 0;
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                if (!board.isSquareAttacked(target, enemy, withoutKing)) {
+                    safe |= Bitboards.bit(target);
+                }
+                targets &= targets - 1;
+            }
+            return safe;
+        }
+        targets &= evasionMask;
+        if ((pinned & Bitboards.bit(square)) != 0) {
+            targets &= Attacks.line(king, square);
+        }
+        return targets;
+    }
+
+    /**
+     * @return True if the team has at least one legal move
+     */
+    boolean hasLegalMove() {
+        long pieces = own;
+        if (king != 64) {
+            if (targets(king) != 0) {
+                return true;
+            }
+            pieces &= ~Bitboards.bit(king);
+        }
+        while (pieces != 0) {
+            if (targets(Long.numberOfTrailingZeros(pieces)) != 0) {
+                return true;
+            }
+            pieces &= pieces - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Adds every legal move of the team's piece on the given square
+     */
+    void addMoves(List<ChessMove> moves, ChessPosition position) {
+        int square = Bitboards.square(position);
+        boolean pawn = board.pieceAt(square).getPieceType() == ChessPiece.PieceType.PAWN;
+        addMoves(moves, position, targets(square), pawn);
+    }
+
+    /**
+     * @return every legal move for the team
+     */
+    List<ChessMove> moves() {
+        List<ChessMove> moves = new ArrayList<>();
+        long pieces = own;
+        while (pieces != 0) {
+            addMoves(moves, Bitboards.position(Long.numberOfTrailingZeros(pieces)));
+            pieces &= pieces - 1;
+        }
+        return moves;
+    }
+
+    /**
+     * @return bitboard of the squares a piece could move to from this square, ignoring checks and pins
+     */
+    static long pseudoTargets(ChessBoard board, ChessPiece piece, int square) {
+        ChessGame.TeamColor color = piece.getTeamColor();
+        if (piece.getPieceType() != ChessPiece.PieceType.PAWN) {
+            return Attacks.of(piece.getPieceType(), color, square, board.occupied()) & ~board.pieces(color);
+        }
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        long empty = ~board.occupied();
+        long targets = Attacks.pawn(color, square) & board.pieces(ChessGame.opponent(color));
+        int single = square + forward;
+        if (single >= 0 && single < 64 && (empty & Bitboards.bit(single)) != 0) {
+            targets |= Bitboards.bit(single);
+            int startRow = white ? 2 : 7;
+            if (Bitboards.row(square) == startRow && (empty & Bitboards.bit(single + forward)) != 0) {
+                targets |= Bitboards.bit(single + forward);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Turns a target bitboard into moves, expanding pawn moves onto the first or last row into
+     * one move per promotion piece.
+     */
+    static void addMoves(List<ChessMove> moves, ChessPosition from, long targets, boolean pawn) {
+        while (targets != 0) {
+            ChessPosition to = Bitboards.position(Long.numberOfTrailingZeros(targets));
+            if (pawn && (to.getRow() == 8 || to.getRow() == 1)) {
+                moves.add(new ChessMove(from, to, ChessPiece.PieceType.QUEEN));
+                moves.add(new ChessMove(from, to, ChessPiece.PieceType.KNIGHT));
+                moves.add(new ChessMove(from, to, ChessPiece.PieceType.BISHOP));
+                moves.add(new ChessMove(from, to, ChessPiece.PieceType.ROOK));
+            } else {
+                moves.add(new ChessMove(from, to, null));
+            }
+            targets &= targets - 1;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing: a position's key is the XOR of one key per
+ * (piece, square) pair on the board, plus {@link #BLACK_TO_MOVE} when it is black's turn.
+ * The seed is fixed so keys are stable across runs and between server and client.
+ */
+final class Zobrist {
+    static final long BLACK_TO_MOVE;
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+
+    static {
+        var random = new SplittableRandom(0x240C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param piece  piece index as used by {@link ChessBoard}
+     * @param square square index
+     */
+    static long key(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+}
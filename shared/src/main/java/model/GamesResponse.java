@@ -4,11 +4,26 @@ import java.util.Collection;
 
 public class GamesResponse {
     Collection<ListGameResponse> games;
+    String nextCursor;
+
+    public GamesResponse() {
+    }
+
+    public GamesResponse(Collection<ListGameResponse> games) {
+        this.games = games;
+    }
 
     public Collection<ListGameResponse> getGames() {
         return games;
     }
 
+    /**
+     * @return the cursor for the page after this one, or null if this was the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder("games:\n");
@@ -0,0 +1,32 @@
+package model;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import websocket.commands.CommandTypeAdapterFactory;
+
+/**
+ * The one Gson instance the server and client share. Gson is thread-safe once built, and
+ * building it per call throws away its adapter cache; the chess and model classes are handled
+ * by hand-written streaming adapters instead of reflection.
+ */
+public final class JsonCodec {
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessPosition.class, ChessTypeAdapters.POSITION)
+            .registerTypeAdapter(ChessMove.class, ChessTypeAdapters.MOVE)
+            .registerTypeAdapter(ChessPiece.class, ChessTypeAdapters.PIECE)
+            .registerTypeAdapter(ChessBoard.class, ChessTypeAdapters.BOARD)
+            .registerTypeAdapter(ChessGame.class, ChessTypeAdapters.GAME)
+            .registerTypeAdapter(AuthData.class, ModelTypeAdapters.AUTH)
+            .registerTypeAdapter(UserData.class, ModelTypeAdapters.USER)
+            .registerTypeAdapter(LoginUser.class, ModelTypeAdapters.LOGIN)
+            .registerTypeAdapter(CreateGameRequest.class, ModelTypeAdapters.CREATE_GAME)
+            .registerTypeAdapter(JoinGameRequest.class, ModelTypeAdapters.JOIN_GAME)
+            .registerTypeAdapter(ListGameResponse.class, ModelTypeAdapters.LIST_GAME)
+            .registerTypeAdapter(GameData.class, ModelTypeAdapters.GAME)
+            .registerTypeAdapterFactory(new CommandTypeAdapterFactory())
+            .create();
+
+    private JsonCodec() {
+    }
+}
@@ -0,0 +1,234 @@
+package model;
+
+import chess.ChessGame;
+import chess.ChessTypeAdapters;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapters for the model records, writing the same JSON as Gson's record adapter.
+ * Missing numbers read as 0 and missing strings as null, as they do with reflection.
+ */
+public final class ModelTypeAdapters {
+    private ModelTypeAdapters() {
+    }
+
+    public static final TypeAdapter<AuthData> AUTH = new TypeAdapter<AuthData>() {
+        @Override
+        public void write(JsonWriter out, AuthData auth) throws IOException {
+            out.beginObject();
+            out.name("authToken").value(auth.authToken());
+            out.name("username").value(auth.username());
+            out.endObject();
+        }
+
+        @Override
+        public AuthData read(JsonReader in) throws IOException {
+            String authToken = null;
+            String username = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "authToken" -> authToken = readString(in);
+                    case "username" -> username = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new AuthData(authToken, username);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<UserData> USER = new TypeAdapter<UserData>() {
+        @Override
+        public void write(JsonWriter out, UserData user) throws IOException {
+            out.beginObject();
+            out.name("username").value(user.username());
+            out.name("password").value(user.password());
+            out.name("email").value(user.email());
+            out.endObject();
+        }
+
+        @Override
+        public UserData read(JsonReader in) throws IOException {
+            String username = null;
+            String password = null;
+            String email = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> username = readString(in);
+                    case "password" -> password = readString(in);
+                    case "email" -> email = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new UserData(username, password, email);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<LoginUser> LOGIN = new TypeAdapter<LoginUser>() {
+        @Override
+        public void write(JsonWriter out, LoginUser login) throws IOException {
+            out.beginObject();
+            out.name("username").value(login.username());
+            out.name("password").value(login.password());
+            out.endObject();
+        }
+
+        @Override
+        public LoginUser read(JsonReader in) throws IOException {
+            String username = null;
+            String password = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> username = readString(in);
+                    case "password" -> password = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new LoginUser(username, password);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<CreateGameRequest> CREATE_GAME = new TypeAdapter<CreateGameRequest>() {
+        @Override
+        public void write(JsonWriter out, CreateGameRequest request) throws IOException {
+            out.beginObject();
+            out.name("gameName").value(request.gameName());
+            out.endObject();
+        }
+
+        @Override
+        public CreateGameRequest read(JsonReader in) throws IOException {
+            String gameName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("gameName")) {
+                    gameName = readString(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new CreateGameRequest(gameName);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<JoinGameRequest> JOIN_GAME = new TypeAdapter<JoinGameRequest>() {
+        @Override
+        public void write(JsonWriter out, JoinGameRequest request) throws IOException {
+            out.beginObject();
+            out.name("gameID").value(request.gameID());
+            out.name("playerColor").value(request.playerColor());
+            out.endObject();
+        }
+
+        @Override
+        public JoinGameRequest read(JsonReader in) throws IOException {
+            int gameID = 0;
+            String playerColor = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "gameID" -> gameID = readInt(in);
+                    case "playerColor" -> playerColor = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new JoinGameRequest(gameID, playerColor);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<ListGameResponse> LIST_GAME = new TypeAdapter<ListGameResponse>() {
+        @Override
+        public void write(JsonWriter out, ListGameResponse game) throws IOException {
+            out.beginObject();
+            out.name("gameID").value(game.gameID());
+            out.name("whiteUsername").value(game.whiteUsername());
+            out.name("blackUsername").value(game.blackUsername());
+            out.name("gameName").value(game.gameName());
+            out.endObject();
+        }
+
+        @Override
+        public ListGameResponse read(JsonReader in) throws IOException {
+            int gameID = 0;
+            String white = null;
+            String black = null;
+            String gameName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "gameID" -> gameID = readInt(in);
+                    case "whiteUsername" -> white = readString(in);
+                    case "blackUsername" -> black = readString(in);
+                    case "gameName" -> gameName = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ListGameResponse(gameID, white, black, gameName);
+        }
+    }.nullSafe();
+
+    public static final TypeAdapter<GameData> GAME = new TypeAdapter<GameData>() {
+        @Override
+        public void write(JsonWriter out, GameData game) throws IOException {
+            out.beginObject();
+            out.name("gameID").value(game.gameID());
+            out.name("whiteUsername").value(game.whiteUsername());
+            out.name("blackUsername").value(game.blackUsername());
+            out.name("gameName").value(game.gameName());
+            out.name("game");
+            ChessTypeAdapters.GAME.write(out, game.game());
+            out.endObject();
+        }
+
+        @Override
+        public GameData read(JsonReader in) throws IOException {
+            int gameID = 0;
+            String white = null;
+            String black = null;
+            String gameName = null;
+            ChessGame chessGame = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "gameID" -> gameID = readInt(in);
+                    case "whiteUsername" -> white = readString(in);
+                    case "blackUsername" -> black = readString(in);
+                    case "gameName" -> gameName = readString(in);
+                    case "game" -> chessGame = ChessTypeAdapters.GAME.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameData(gameID, white, black, gameName, chessGame);
+        }
+    }.nullSafe();
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+}
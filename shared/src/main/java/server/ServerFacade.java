@@ -1,11 +1,12 @@
 package server;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
 import exception.ResponseException;
 import model.AuthData;
+import model.JsonCodec;
 import model.GameData;
 import model.GamesResponse;
+import model.ListGameResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,9 +15,13 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Map;
 
 public class ServerFacade {
+    private static final int LIST_PAGE_SIZE = 500;
     private final String serverUrl;
 
     public ServerFacade(String url) {
@@ -26,7 +31,7 @@ public class ServerFacade {
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = JsonCodec.GSON.toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
             }
@@ -45,7 +50,7 @@ public class ServerFacade {
             try (InputStream respBody = http.getInputStream()) {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = JsonCodec.GSON.fromJson(reader, responseClass);
                 }
             }
         }
@@ -67,8 +72,32 @@ public class ServerFacade {
         this.makeRequest("DELETE", path, header, null, null);
     }
 
+    /**
+     * Lists every game, following the server's cursors one page at a time
+     */
     public GamesResponse listGames(String header) throws ResponseException {
-        var path = "/game";
+        var games = new ArrayList<ListGameResponse>();
+        String cursor = null;
+        do {
+            var page = listGames(header, cursor, LIST_PAGE_SIZE);
+            if (page.getGames() != null) {
+                games.addAll(page.getGames());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return new GamesResponse(games);
+    }
+
+    /**
+     * Lists one page of games
+     *
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     */
+    public GamesResponse listGames(String header, String cursor, int limit) throws ResponseException {
+        var path = "/game?limit=" + limit;
+        if (cursor != null) {
+            path += "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+        }
         return this.makeRequest("GET", path, header, null, GamesResponse.class);
     }
 
@@ -126,7 +155,7 @@ public class ServerFacade {
             // Read the error stream to get the response body with the error message
             try (InputStream errorStream = http.getErrorStream()) {
                 InputStreamReader reader = new InputStreamReader(errorStream);
-                Map<String, String> errorResponse = new Gson().fromJson(reader, Map.class);
+                Map<String, String> errorResponse = JsonCodec.GSON.fromJson(reader, Map.class);
                 String errorMessage = errorResponse.getOrDefault("message", "Unknown error");
                 throw new ResponseException(status, errorMessage);
             }
@@ -0,0 +1,235 @@
+package websocket;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessPosition;
+import model.GameData;
+import websocket.commands.ConnectCommand;
+import websocket.commands.GameCommand;
+import websocket.commands.MoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary framing for websocket commands and server messages, used by clients that
+ * send their CONNECT as a binary frame instead of JSON.
+ * <p>
+ * Every frame starts with one header byte: the format version in the high nibble and the
+ * command or message type ordinal in the low nibble. Integers are big-endian. Strings are a
+ * two-byte length followed by UTF-8, with length 0xFFFF meaning null. A move is two bytes:
+ * start square in bits 0-5, end square in bits 6-11 and promotion piece ordinal plus one in
+ * bits 12-14, where a square is {@code (row - 1) * 8 + (column - 1)}. A game is the
+ * {@link ChessGameCodec} state.
+ * <ul>
+ *     <li>Commands: header, gameID (4 bytes), auth token, then CONNECT a flags byte (bit 0 for
+ *     move deltas), MAKE_MOVE a move, LOAD_GAME a count byte and one byte per highlighted square.
+ *     The team color on a move command is not sent.</li>
+ *     <li>LOAD_GAME: gameID, white, black and game name, then the game.</li>
+ *     <li>GAME: the game, then a count byte and one byte per highlighted square.</li>
+ *     <li>MOVE: a move, a flags byte (bit 0 black to move, bit 1 game over, bits 2-3 the status
+ *     ordinal), then the 8-byte position key.</li>
+ *     <li>NOTIFICATION and ERROR: the text.</li>
+ * </ul>
+ */
+public final class BinaryCodec {
+    private static final int VERSION = 1;
+    private static final int NULL_STRING = 0xFFFF;
+
+    private static final UserGameCommand.CommandType[] COMMANDS = UserGameCommand.CommandType.values();
+    private static final ServerMessage.ServerMessageType[] MESSAGES = ServerMessage.ServerMessageType.values();
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+
+    private BinaryCodec() {
+    }
+
+    public static byte[] encodeCommand(UserGameCommand command) {
+        var bytes = new ByteArrayOutputStream(64);
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(header(command.getCommandType().ordinal()));
+            out.writeInt(command.getGameID());
+            writeString(out, command.getAuthToken());
+            switch (command) {
+                case ConnectCommand connect -> out.writeByte(connect.getMoveDeltas() ? 1 : 0);
+                case MoveCommand move -> out.writeShort(ChessGameCodec.encodeMove(move.getMove()));
+                case GameCommand game -> writeSquares(out, game.getHighlight());
+                default -> {
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the command, as the subclass matching its type
+     * @throws IllegalArgumentException if the bytes are not a well-formed command frame
+     */
+    public static UserGameCommand decodeCommand(byte[] data, int offset, int length) {
+        try {
+            var in = ByteBuffer.wrap(data, offset, length);
+            var type = COMMANDS[readHeader(in, COMMANDS.length)];
+            int gameID = in.getInt();
+            String auth = readString(in);
+            return switch (type) {
+                case CONNECT -> new ConnectCommand(auth, gameID, (in.get() & 1) != 0);
+                case MAKE_MOVE -> new MoveCommand(type, auth, gameID, ChessGameCodec.decodeMove(in.getShort()), null);
+                case LOAD_GAME -> new GameCommand(type, auth, gameID, readSquares(in));
+                default -> new UserGameCommand(type, auth, gameID);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated command frame");
+        }
+    }
+
+    public static byte[] encodeMessage(ServerMessage message) {
+        var bytes = new ByteArrayOutputStream(64);
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(header(message.getServerMessageType().ordinal()));
+            switch (message) {
+                case LoadGameMessage load -> {
+                    GameData data = load.getGame();
+                    out.writeInt(data.gameID());
+                    writeString(out, data.whiteUsername());
+                    writeString(out, data.blackUsername());
+                    writeString(out, data.gameName());
+                    out.write(ChessGameCodec.encode(data.game()));
+                }
+                case GameMessage game -> {
+                    out.write(ChessGameCodec.encode(game.getGame()));
+                    writeSquares(out, game.getHighlight());
+                }
+                case MoveMessage move -> {
+                    out.writeShort(ChessGameCodec.encodeMove(move.getMove()));
+                    int flags = (move.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0)
+                            | (move.getGameOver() ? 2 : 0)
+                            | move.getStatus().ordinal() << 2;
+                    out.writeByte(flags);
+                    out.writeLong(Long.parseUnsignedLong(move.getPositionHash(), 16));
+                }
+                case NotificationMessage notification -> writeString(out, notification.getMessage());
+                case ErrorMessage error -> writeString(out, error.getError());
+                default -> {
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the message, as the subclass matching its type
+     * @throws IllegalArgumentException if the bytes are not a well-formed message frame
+     */
+    public static ServerMessage decodeMessage(byte[] data, int offset, int length) {
+        try {
+            var in = ByteBuffer.wrap(data, offset, length);
+            var type = MESSAGES[readHeader(in, MESSAGES.length)];
+            return switch (type) {
+                case LOAD_GAME -> {
+                    int gameID = in.getInt();
+                    String white = readString(in);
+                    String black = readString(in);
+                    String name = readString(in);
+                    var game = readGame(in);
+                    yield new LoadGameMessage(type, new GameData(gameID, white, black, name, game));
+                }
+                case GAME -> new GameMessage(type, readGame(in), readSquares(in));
+                case MOVE -> {
+                    var move = ChessGameCodec.decodeMove(in.getShort());
+                    int flags = in.get();
+                    var turn = (flags & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+                    var status = STATUSES[(flags >>> 2) & 3];
+                    var hash = Long.toHexString(in.getLong());
+                    yield new MoveMessage(move, turn, status, (flags & 2) != 0, hash);
+                }
+                case NOTIFICATION -> new NotificationMessage(type, readString(in));
+                case ERROR -> new ErrorMessage(type, readString(in));
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated message frame");
+        }
+    }
+
+    private static int header(int type) {
+        return VERSION << 4 | type;
+    }
+
+    private static int readHeader(ByteBuffer in, int types) {
+        int header = in.get() & 0xFF;
+        int type = header & 0x0F;
+        if (header >>> 4 != VERSION || type >= types) {
+            throw new IllegalArgumentException("Unknown frame header " + header);
+        }
+        return type;
+    }
+
+    private static ChessGame readGame(ByteBuffer in) {
+        if (in.remaining() < ChessGameCodec.LENGTH) {
+            throw new BufferUnderflowException();
+        }
+        var game = ChessGameCodec.decode(in.array(), in.arrayOffset() + in.position());
+        in.position(in.position() + ChessGameCodec.LENGTH);
+        return game;
+    }
+
+    private static void writeSquares(DataOutputStream out, List<ChessPosition> squares) throws IOException {
+        if (squares == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(squares.size());
+        for (var position : squares) {
+            out.writeByte(Bitboards.square(position));
+        }
+    }
+
+    private static List<ChessPosition> readSquares(ByteBuffer in) {
+        int count = in.get() & 0xFF;
+        if (count == 0) {
+            return null;
+        }
+        var squares = new ArrayList<ChessPosition>(count);
+        for (int i = 0; i < count; i++) {
+            squares.add(Bitboards.position(in.get() & 63));
+        }
+        return squares;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_STRING);
+            return;
+        }
+        var utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String too long for a binary frame");
+        }
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        var utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
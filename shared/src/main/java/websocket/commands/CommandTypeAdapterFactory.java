@@ -0,0 +1,82 @@
+package websocket.commands;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lets Gson read a {@link UserGameCommand} straight into the subclass its {@code commandType}
+ * calls for, so a frame is parsed once instead of once for the type and again for the body.
+ * <p>
+ * The frame is read into a tree, the type is looked up, and the tree is bound with that
+ * subclass's reflective adapter. Commands are written with the adapter for their runtime class.
+ * A frame whose {@code commandType} is missing or not a known type is rejected with a
+ * {@link JsonParseException}.
+ */
+public class CommandTypeAdapterFactory implements TypeAdapterFactory {
+    private static final String TYPE_FIELD = "commandType";
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != UserGameCommand.class) {
+            return null;
+        }
+        return (TypeAdapter<T>) new CommandAdapter(gson, this).nullSafe();
+    }
+
+    private static final class CommandAdapter extends TypeAdapter<UserGameCommand> {
+        private final Gson gson;
+        private final TypeAdapter<JsonElement> trees;
+        private final TypeAdapter<UserGameCommand.CommandType> types;
+        private final TypeAdapter<UserGameCommand> base;
+        private final Map<UserGameCommand.CommandType, TypeAdapter<? extends UserGameCommand>> subclasses =
+                new EnumMap<>(UserGameCommand.CommandType.class);
+
+        private CommandAdapter(Gson gson, TypeAdapterFactory skip) {
+            this.gson = gson;
+            this.trees = gson.getAdapter(JsonElement.class);
+            this.types = gson.getAdapter(UserGameCommand.CommandType.class);
+            this.base = gson.getDelegateAdapter(skip, TypeToken.get(UserGameCommand.class));
+            subclasses.put(UserGameCommand.CommandType.CONNECT, gson.getAdapter(ConnectCommand.class));
+            subclasses.put(UserGameCommand.CommandType.MAKE_MOVE, gson.getAdapter(MoveCommand.class));
+            subclasses.put(UserGameCommand.CommandType.LOAD_GAME, gson.getAdapter(GameCommand.class));
+        }
+
+        @Override
+        public UserGameCommand read(JsonReader in) throws IOException {
+            JsonElement tree = trees.read(in);
+            if (!(tree instanceof JsonObject object)) {
+                throw new JsonParseException("Expected a command object");
+            }
+            var field = object.get(TYPE_FIELD);
+            var type = field == null ? null : types.fromJsonTree(field);
+            if (type == null) {
+                throw new JsonParseException("Unknown or missing " + TYPE_FIELD + ": " + field);
+            }
+            var adapter = subclasses.get(type);
+            return adapter == null ? base.fromJsonTree(tree) : adapter.fromJsonTree(tree);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, UserGameCommand command) throws IOException {
+            if (command.getClass() == UserGameCommand.class) {
+                base.write(out, command);
+            } else {
+                var adapter = (TypeAdapter<UserGameCommand>) gson.getAdapter(command.getClass());
+                adapter.write(out, command);
+            }
+        }
+    }
+}
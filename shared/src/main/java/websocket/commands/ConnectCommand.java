@@ -0,0 +1,18 @@
+package websocket.commands;
+
+public class ConnectCommand extends UserGameCommand {
+    private final boolean moveDeltas;
+
+    /**
+     * @param moveDeltas True to receive a {@link websocket.messages.MoveMessage} after each move
+     *                   instead of a full LOAD_GAME
+     */
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveDeltas = moveDeltas;
+    }
+
+    public boolean getMoveDeltas() {
+        return moveDeltas;
+    }
+}
@@ -0,0 +1,60 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+/**
+ * Tells a client which move was just played instead of resending the whole game.
+ * <p>
+ * The client applies the move to its own copy of the game and compares the resulting
+ * {@link ChessGame#getPositionKey()} with {@code positionHash}. If they differ, its copy has
+ * drifted and it asks for a full snapshot.
+ */
+public class MoveMessage extends ServerMessage {
+    private final ChessMove move;
+    private final ChessGame.TeamColor teamTurn;
+    private final ChessGame.GameStatus status;
+    private final boolean gameOver;
+    private final String positionHash;
+
+    public MoveMessage(ChessMove move, ChessGame game, ChessGame.GameStatus status) {
+        this(move, game.getTeamTurn(), status, Boolean.TRUE.equals(game.getGameOver()), positionHash(game));
+    }
+
+    public MoveMessage(ChessMove move, ChessGame.TeamColor teamTurn, ChessGame.GameStatus status,
+                       boolean gameOver, String positionHash) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.teamTurn = teamTurn;
+        this.status = status;
+        this.gameOver = gameOver;
+        this.positionHash = positionHash;
+    }
+
+    /**
+     * @return the game's position key as hex, which survives clients whose numbers are doubles
+     */
+    public static String positionHash(ChessGame game) {
+        return Long.toHexString(game.getPositionKey());
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return teamTurn;
+    }
+
+    public ChessGame.GameStatus getStatus() {
+        return status;
+    }
+
+    public boolean getGameOver() {
+        return gameOver;
+    }
+
+    public String getPositionHash() {
+        return positionHash;
+    }
+}
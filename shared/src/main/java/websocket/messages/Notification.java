@@ -1,6 +1,6 @@
 package websocket.messages;
 
-import com.google.gson.Gson;
+import model.JsonCodec;
 
 public class Notification extends ServerMessage {
     private ServerMessage messageType;
@@ -16,6 +16,6 @@ public class Notification extends ServerMessage {
     }
 
     public String getMessage() {
-        return new Gson().toJson(message);
+        return JsonCodec.GSON.toJson(message);
     }
 }
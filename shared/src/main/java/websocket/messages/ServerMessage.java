@@ -15,7 +15,8 @@ public class ServerMessage {
         LOAD_GAME,
         ERROR,
         NOTIFICATION,
-        GAME
+        GAME,
+        MOVE
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -0,0 +1,48 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChessGameCodecTest {
+
+    @Test
+    public void gameRoundTrip() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.resignGame();
+        var decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        Assertions.assertTrue(decoded.getGameOver());
+        Assertions.assertFalse(ChessGameCodec.decode(ChessGameCodec.encode(new ChessGame())).getGameOver());
+    }
+
+    @Test
+    public void rejectsBadVersion() {
+        byte[] bytes = ChessGameCodec.encode(new ChessGame());
+        bytes[32] ^= 0x30;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(bytes));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[10]));
+    }
+
+    @Test
+    public void moveRoundTrip() {
+        var start = new ChessPosition(7, 1);
+        var end = new ChessPosition(8, 2);
+        for (var type : new ChessPiece.PieceType[]{null, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT}) {
+            var move = new ChessMove(start, end, type);
+            Assertions.assertEquals(move, ChessGameCodec.decodeMove(ChessGameCodec.encodeMove(move)));
+        }
+    }
+
+    @Test
+    public void rejectsPromotionToKingOrPawn() {
+        int plain = ChessGameCodec.encodeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), null));
+        for (var type : new ChessPiece.PieceType[]{ChessPiece.PieceType.KING, ChessPiece.PieceType.PAWN}) {
+            int bits = plain | (type.ordinal() + 1) << 12;
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(bits));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(plain | 7 << 12));
+    }
+}
@@ -0,0 +1,123 @@
+package chess;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import model.JsonCodec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+/**
+ * Round trips the chess classes through the streaming adapters registered on {@link JsonCodec}
+ */
+public class ChessTypeAdaptersTest {
+
+    @Test
+    public void positionRoundTrip() {
+        var position = new ChessPosition(3, 7);
+        Assertions.assertEquals("{\"row\":3,\"col\":7}", JsonCodec.GSON.toJson(position));
+        Assertions.assertEquals(position, roundTrip(position, ChessPosition.class));
+    }
+
+    @Test
+    public void moveRoundTrip() {
+        var plain = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        var promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.ROOK);
+        Assertions.assertEquals(plain, roundTrip(plain, ChessMove.class));
+        Assertions.assertEquals(promotion, roundTrip(promotion, ChessMove.class));
+    }
+
+    @Test
+    public void pieceRoundTrip() {
+        for (var color : ChessGame.TeamColor.values()) {
+            for (var type : ChessPiece.PieceType.values()) {
+                var piece = new ChessPiece(color, type);
+                Assertions.assertEquals(piece, roundTrip(piece, ChessPiece.class));
+            }
+        }
+    }
+
+    @Test
+    public void boardWrittenAsHex() {
+        var board = loadBoard("""
+                | | | | |k| | |r|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | | |
+                """);
+        var json = JsonParser.parseString(JsonCodec.GSON.toJson(board)).getAsJsonObject();
+        var pieceBoards = json.getAsJsonArray("pieceBoards");
+        int blackRook = ChessGame.TeamColor.BLACK.ordinal() * ChessPiece.PieceType.values().length
+                + ChessPiece.PieceType.ROOK.ordinal();
+        Assertions.assertEquals("8000000000000000", pieceBoards.get(blackRook).getAsString());
+        Assertions.assertTrue(pieceBoards.get(0).getAsJsonPrimitive().isString());
+        Assertions.assertEquals(Long.toHexString(board.getZobristKey()), json.get("zobristKey").getAsString());
+        Assertions.assertEquals(board, roundTrip(board, ChessBoard.class));
+    }
+
+    @Test
+    public void boardReadsDecimalBitboards() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var json = JsonParser.parseString(JsonCodec.GSON.toJson(board)).getAsJsonObject();
+        var pieceBoards = json.getAsJsonArray("pieceBoards");
+        var decimal = new JsonArray();
+        for (var squares : pieceBoards) {
+            decimal.add(Long.parseUnsignedLong(squares.getAsString(), 16));
+        }
+        json.add("pieceBoards", decimal);
+        Assertions.assertEquals(board, JsonCodec.GSON.fromJson(json, ChessBoard.class));
+    }
+
+    @Test
+    public void badBitboardRejected() {
+        Assertions.assertThrows(JsonParseException.class,
+                () -> JsonCodec.GSON.fromJson("{\"pieceBoards\":[\"xyz\"]}", ChessBoard.class));
+    }
+
+    @Test
+    public void gameRoundTrip() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        var decoded = roundTrip(game, ChessGame.class);
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        Assertions.assertEquals(game.getPositionKey(), decoded.getPositionKey());
+
+        game.resignGame();
+        Assertions.assertTrue(roundTrip(game, ChessGame.class).getGameOver());
+    }
+
+    @Test
+    public void incompleteGameRejected() {
+        Assertions.assertThrows(JsonParseException.class, () -> JsonCodec.GSON.fromJson("{}", ChessGame.class));
+        var json = JsonParser.parseString(JsonCodec.GSON.toJson(new ChessGame())).getAsJsonObject();
+        json.remove("teamTurn");
+        Assertions.assertThrows(JsonParseException.class, () -> JsonCodec.GSON.fromJson(json, ChessGame.class));
+        json.addProperty("teamTurn", "BLACK");
+        json.remove("gameOver");
+        Assertions.assertFalse(JsonCodec.GSON.fromJson(json, ChessGame.class).getGameOver());
+    }
+
+    @Test
+    public void unknownEnumRejected() {
+        Assertions.assertThrows(JsonParseException.class,
+                () -> JsonCodec.GSON.fromJson("{\"pieceColor\":\"RED\",\"type\":\"KING\"}", ChessPiece.class));
+    }
+
+    @Test
+    public void nullsRoundTrip() {
+        Assertions.assertEquals("null", JsonCodec.GSON.toJson(null, ChessGame.class));
+        Assertions.assertNull(JsonCodec.GSON.fromJson("null", ChessMove.class));
+    }
+
+    private static <T> T roundTrip(T value, Class<T> type) {
+        return JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(value), type);
+    }
+}
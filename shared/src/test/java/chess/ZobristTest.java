@@ -0,0 +1,134 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+/**
+ * Checks that the incrementally maintained Zobrist key always equals the key recomputed from
+ * the pieces on the board. The engine has no castling or en passant, so the special moves
+ * covered are captures, promotions and capturing promotions.
+ */
+public class ZobristTest {
+
+    @Test
+    public void startPositionMatchesRecompute() {
+        var game = new ChessGame();
+        Assertions.assertEquals(recompute(game.getBoard()), game.getBoard().getZobristKey());
+        Assertions.assertEquals(recompute(game), game.getPositionKey());
+    }
+
+    @Test
+    public void makeAndUnmakeMatchRecompute() {
+        walk(new ChessGame(), 3);
+    }
+
+    @Test
+    public void capturesMatchRecompute() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | |p| | | | |
+                | | |n| |b| | | |
+                | | | |N| | | | |
+                | | | | | |q| | |
+                | | |B| | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |r|
+                """));
+        walk(game, 3);
+    }
+
+    @Test
+    public void promotionsMatchRecompute() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                |n| |n| | | | | |
+                |P|P|P|k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|p|p|p|
+                | | | | | |N| |N|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        walk(game, 3);
+    }
+
+    @Test
+    public void makeMoveMatchesRecompute() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |p| | | |
+                | | | |K| |Q| | |
+                """));
+        game.makeMove(new ChessMove(new ChessPosition(1, 4), new ChessPosition(2, 5), null));
+        Assertions.assertEquals(recompute(game), game.getPositionKey());
+        game.makeMove(new ChessMove(new ChessPosition(8, 5), new ChessPosition(7, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 6), new ChessPosition(7, 6), null));
+        Assertions.assertEquals(recompute(game), game.getPositionKey());
+    }
+
+    @Test
+    public void addPieceOverwriteMatchesRecompute() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var square = new ChessPosition(2, 5);
+        board.addPiece(square, new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(recompute(board), board.getZobristKey());
+        board.addPiece(square, null);
+        Assertions.assertEquals(recompute(board), board.getZobristKey());
+    }
+
+    @Test
+    public void codecRoundTripKeepsKey() {
+        var game = new ChessGame();
+        game.pushMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        var decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        Assertions.assertEquals(game.getPositionKey(), decoded.getPositionKey());
+        Assertions.assertEquals(recompute(decoded), decoded.getPositionKey());
+    }
+
+    /**
+     * Plays every legal move to the given depth with push and pop, checking the key against a
+     * recompute after each push and that each pop restores the key from before the move
+     */
+    private static void walk(ChessGame game, int depth) {
+        Assertions.assertEquals(recompute(game), game.getPositionKey());
+        if (depth == 0) {
+            return;
+        }
+        long before = game.getPositionKey();
+        for (ChessMove move : game.allValidMoves(game.getTeamTurn())) {
+            game.pushMove(move);
+            walk(game, depth - 1);
+            game.popMove();
+            Assertions.assertEquals(before, game.getPositionKey(), "key not restored after " + move);
+        }
+    }
+
+    private static long recompute(ChessGame game) {
+        long key = recompute(game.getBoard());
+        return game.getTeamTurn() == ChessGame.TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
+    private static long recompute(ChessBoard board) {
+        int types = ChessPiece.PieceType.values().length;
+        long key = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.pieceAt(sq);
+            if (piece != null) {
+                key ^= Zobrist.key(piece.getTeamColor().ordinal() * types + piece.getPieceType().ordinal(), sq);
+            }
+        }
+        return key;
+    }
+}
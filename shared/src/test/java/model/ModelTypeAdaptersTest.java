@@ -0,0 +1,64 @@
+package model;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the model adapters against Gson's record adapter and round trips every model record
+ */
+public class ModelTypeAdaptersTest {
+    private static final Gson REFLECTIVE = new Gson();
+
+    @Test
+    public void writesSameJsonAsRecordAdapter() {
+        assertSameJson(new AuthData("token", "user"));
+        assertSameJson(new UserData("user", "pass", "mail@example.com"));
+        assertSameJson(new LoginUser("user", "pass"));
+        assertSameJson(new CreateGameRequest("game"));
+        assertSameJson(new JoinGameRequest(3, "WHITE"));
+        assertSameJson(new ListGameResponse(4, "white", null, "game"));
+    }
+
+    @Test
+    public void recordsRoundTrip() {
+        assertRoundTrip(new AuthData("token", "user"), AuthData.class);
+        assertRoundTrip(new UserData("user", "pass", "mail@example.com"), UserData.class);
+        assertRoundTrip(new LoginUser("user", "pass"), LoginUser.class);
+        assertRoundTrip(new CreateGameRequest("game"), CreateGameRequest.class);
+        assertRoundTrip(new JoinGameRequest(3, "BLACK"), JoinGameRequest.class);
+        assertRoundTrip(new ListGameResponse(4, null, "black", "game"), ListGameResponse.class);
+        assertRoundTrip(new GameData(5, "white", "black", "game", new ChessGame()), GameData.class);
+        assertRoundTrip(new GameData(6, null, null, "empty", null), GameData.class);
+    }
+
+    @Test
+    public void missingFieldsReadAsDefaults() {
+        Assertions.assertEquals(new JoinGameRequest(0, null), JsonCodec.GSON.fromJson("{}", JoinGameRequest.class));
+        Assertions.assertEquals(new JoinGameRequest(0, "WHITE"),
+                JsonCodec.GSON.fromJson("{\"gameID\":null,\"playerColor\":\"WHITE\"}", JoinGameRequest.class));
+        Assertions.assertEquals(new ListGameResponse(0, null, null, null),
+                JsonCodec.GSON.fromJson("{}", ListGameResponse.class));
+    }
+
+    @Test
+    public void unknownFieldsSkipped() {
+        var json = "{\"extra\":{\"nested\":[1,2]},\"username\":\"user\",\"authToken\":\"token\",\"more\":true}";
+        Assertions.assertEquals(new AuthData("token", "user"), JsonCodec.GSON.fromJson(json, AuthData.class));
+    }
+
+    @Test
+    public void nullsRoundTrip() {
+        Assertions.assertEquals("null", JsonCodec.GSON.toJson(null, GameData.class));
+        Assertions.assertNull(JsonCodec.GSON.fromJson("null", UserData.class));
+    }
+
+    private static void assertSameJson(Object record) {
+        Assertions.assertEquals(REFLECTIVE.toJson(record), JsonCodec.GSON.toJson(record));
+    }
+
+    private static <T> void assertRoundTrip(T record, Class<T> type) {
+        Assertions.assertEquals(record, JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(record), type));
+    }
+}
@@ -0,0 +1,182 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import websocket.commands.ConnectCommand;
+import websocket.commands.GameCommand;
+import websocket.commands.MoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.GameMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.List;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+/**
+ * Round trips every command and message type through the binary framing
+ */
+public class BinaryCodecTest {
+    private static final ChessMove OPENING = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove PROMOTION =
+            new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT);
+
+    @Test
+    public void connectRoundTrip() {
+        for (boolean deltas : new boolean[]{true, false}) {
+            var decoded = roundTrip(new ConnectCommand("token", 7, deltas));
+            var connect = Assertions.assertInstanceOf(ConnectCommand.class, decoded);
+            Assertions.assertEquals(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 7), decoded);
+            Assertions.assertEquals(deltas, connect.getMoveDeltas());
+        }
+    }
+
+    @Test
+    public void moveRoundTrip() {
+        for (var move : List.of(OPENING, PROMOTION)) {
+            var decoded = roundTrip(new MoveCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 3, move,
+                    ChessGame.TeamColor.WHITE));
+            var moveCommand = Assertions.assertInstanceOf(MoveCommand.class, decoded);
+            Assertions.assertEquals(move, moveCommand.getMove());
+            Assertions.assertNull(moveCommand.getTeamColor(), "team color is not sent");
+        }
+    }
+
+    @Test
+    public void loadGameCommandRoundTrip() {
+        var highlight = List.of(new ChessPosition(1, 1), new ChessPosition(8, 8), new ChessPosition(4, 5));
+        var decoded = roundTrip(new GameCommand(UserGameCommand.CommandType.LOAD_GAME, "token", 9, highlight));
+        Assertions.assertEquals(highlight, Assertions.assertInstanceOf(GameCommand.class, decoded).getHighlight());
+
+        decoded = roundTrip(new GameCommand(UserGameCommand.CommandType.LOAD_GAME, "token", 9, null));
+        Assertions.assertNull(Assertions.assertInstanceOf(GameCommand.class, decoded).getHighlight());
+    }
+
+    @Test
+    public void plainCommandsRoundTrip() {
+        for (var type : List.of(UserGameCommand.CommandType.LEAVE, UserGameCommand.CommandType.RESIGN)) {
+            var command = new UserGameCommand(type, "token", 42);
+            var decoded = roundTrip(command);
+            Assertions.assertEquals(UserGameCommand.class, decoded.getClass());
+            Assertions.assertEquals(command, decoded);
+        }
+        var anonymous = new UserGameCommand(UserGameCommand.CommandType.LEAVE, null, 1);
+        Assertions.assertEquals(anonymous, roundTrip(anonymous));
+    }
+
+    @Test
+    public void loadGameMessageRoundTrip() {
+        var data = new GameData(12, "white", null, "name with ünïcode", promotionGame());
+        var decoded = roundTrip(new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, data));
+        Assertions.assertEquals(data, Assertions.assertInstanceOf(LoadGameMessage.class, decoded).getGame());
+    }
+
+    @Test
+    public void gameMessageRoundTrip() {
+        var highlight = List.of(new ChessPosition(2, 5), new ChessPosition(3, 5));
+        var decoded = roundTrip(new GameMessage(ServerMessage.ServerMessageType.GAME, new ChessGame(), highlight));
+        var game = Assertions.assertInstanceOf(GameMessage.class, decoded);
+        Assertions.assertEquals(new ChessGame(), game.getGame());
+        Assertions.assertEquals(highlight, game.getHighlight());
+    }
+
+    @Test
+    public void moveMessageRoundTrip() throws Exception {
+        var game = promotionGame();
+        game.makeMove(PROMOTION);
+        var status = game.getStatus(game.getTeamTurn());
+        var decoded = roundTrip(new MoveMessage(PROMOTION, game, status));
+        var move = Assertions.assertInstanceOf(MoveMessage.class, decoded);
+        Assertions.assertEquals(PROMOTION, move.getMove());
+        Assertions.assertEquals(game.getTeamTurn(), move.getTeamTurn());
+        Assertions.assertEquals(status, move.getStatus());
+        Assertions.assertEquals(game.getGameOver(), move.getGameOver());
+        Assertions.assertEquals(MoveMessage.positionHash(game), move.getPositionHash());
+    }
+
+    @Test
+    public void textMessagesRoundTrip() {
+        var notification = roundTrip(new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "hi"));
+        Assertions.assertEquals("hi", Assertions.assertInstanceOf(NotificationMessage.class, notification).getMessage());
+        var error = roundTrip(new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: nope"));
+        Assertions.assertEquals("Error: nope", Assertions.assertInstanceOf(ErrorMessage.class, error).getError());
+    }
+
+    @Test
+    public void decodesWithinLargerBuffer() {
+        var frame = BinaryCodec.encodeCommand(new ConnectCommand("token", 5, true));
+        var padded = new byte[frame.length + 6];
+        System.arraycopy(frame, 0, padded, 3, frame.length);
+        Assertions.assertEquals(new ConnectCommand("token", 5, true),
+                BinaryCodec.decodeCommand(padded, 3, frame.length));
+    }
+
+    @Test
+    public void badVersionNibbleRejected() {
+        var command = BinaryCodec.encodeCommand(new UserGameCommand(UserGameCommand.CommandType.LEAVE, "t", 1));
+        command[0] = (byte) (0x20 | (command[0] & 0x0F));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeCommand(command, 0, command.length));
+
+        var message = BinaryCodec.encodeMessage(new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "x"));
+        message[0] = (byte) (message[0] & 0x0F);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeMessage(message, 0, message.length));
+    }
+
+    @Test
+    public void unknownTypeRejected() {
+        var command = BinaryCodec.encodeCommand(new UserGameCommand(UserGameCommand.CommandType.LEAVE, "t", 1));
+        command[0] = (byte) ((command[0] & 0xF0) | 0x0F);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeCommand(command, 0, command.length));
+    }
+
+    @Test
+    public void truncatedFramesRejected() {
+        var command = BinaryCodec.encodeCommand(new ConnectCommand("token", 5, true));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeCommand(command, 0, command.length - 1));
+
+        var load = BinaryCodec.encodeMessage(new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME,
+                new GameData(1, null, null, "g", new ChessGame())));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeMessage(load, 0, load.length - 1));
+    }
+
+    private static ChessGame promotionGame() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | |r| | |k| | | |
+                |P| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+        return game;
+    }
+
+    private static UserGameCommand roundTrip(UserGameCommand command) {
+        var frame = BinaryCodec.encodeCommand(command);
+        return BinaryCodec.decodeCommand(frame, 0, frame.length);
+    }
+
+    private static ServerMessage roundTrip(ServerMessage message) {
+        var frame = BinaryCodec.encodeMessage(message);
+        var decoded = BinaryCodec.decodeMessage(frame, 0, frame.length);
+        Assertions.assertEquals(message.getServerMessageType(), decoded.getServerMessageType());
+        return decoded;
+    }
+}
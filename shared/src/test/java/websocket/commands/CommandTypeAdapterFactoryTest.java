@@ -0,0 +1,87 @@
+package websocket.commands;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.JsonParseException;
+import model.JsonCodec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Checks that commands are read as the subclass their commandType calls for
+ */
+public class CommandTypeAdapterFactoryTest {
+
+    @Test
+    public void connectReadsAsSubclass() {
+        var decoded = roundTrip(new ConnectCommand("token", 4, true));
+        var connect = Assertions.assertInstanceOf(ConnectCommand.class, decoded);
+        Assertions.assertEquals(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 4), decoded);
+        Assertions.assertTrue(connect.getMoveDeltas());
+    }
+
+    @Test
+    public void moveReadsAsSubclass() {
+        var move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        var decoded = roundTrip(new MoveCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 4, move,
+                ChessGame.TeamColor.WHITE));
+        var moveCommand = Assertions.assertInstanceOf(MoveCommand.class, decoded);
+        Assertions.assertEquals(move, moveCommand.getMove());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, moveCommand.getTeamColor());
+    }
+
+    @Test
+    public void loadGameReadsAsSubclass() {
+        var highlight = List.of(new ChessPosition(2, 2));
+        var decoded = roundTrip(new GameCommand(UserGameCommand.CommandType.LOAD_GAME, "token", 4, highlight));
+        Assertions.assertEquals(highlight, Assertions.assertInstanceOf(GameCommand.class, decoded).getHighlight());
+    }
+
+    @Test
+    public void otherTypesReadAsBase() {
+        for (var type : List.of(UserGameCommand.CommandType.LEAVE, UserGameCommand.CommandType.RESIGN)) {
+            var command = new UserGameCommand(type, "token", 4);
+            var decoded = roundTrip(command);
+            Assertions.assertEquals(UserGameCommand.class, decoded.getClass());
+            Assertions.assertEquals(command, decoded);
+        }
+    }
+
+    @Test
+    public void readsPlainUserGameCommandJson() {
+        var json = "{\"commandType\":\"CONNECT\",\"authToken\":\"abc\",\"gameID\":2}";
+        var decoded = JsonCodec.GSON.fromJson(json, UserGameCommand.class);
+        Assertions.assertInstanceOf(ConnectCommand.class, decoded);
+        Assertions.assertEquals("abc", decoded.getAuthToken());
+        Assertions.assertFalse(((ConnectCommand) decoded).getMoveDeltas());
+    }
+
+    @Test
+    public void unknownCommandTypeRejected() {
+        Assertions.assertThrows(JsonParseException.class, () -> JsonCodec.GSON.fromJson(
+                "{\"commandType\":\"CASTLE\",\"authToken\":\"abc\",\"gameID\":2}", UserGameCommand.class));
+    }
+
+    @Test
+    public void missingCommandTypeRejected() {
+        Assertions.assertThrows(JsonParseException.class, () -> JsonCodec.GSON.fromJson(
+                "{\"authToken\":\"abc\",\"gameID\":2}", UserGameCommand.class));
+        Assertions.assertThrows(JsonParseException.class, () -> JsonCodec.GSON.fromJson(
+                "{\"commandType\":null,\"authToken\":\"abc\",\"gameID\":2}", UserGameCommand.class));
+    }
+
+    @Test
+    public void nonObjectRejected() {
+        Assertions.assertThrows(JsonParseException.class,
+                () -> JsonCodec.GSON.fromJson("[1,2]", UserGameCommand.class));
+        Assertions.assertNull(JsonCodec.GSON.fromJson("null", UserGameCommand.class));
+    }
+
+    private static UserGameCommand roundTrip(UserGameCommand command) {
+        return JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(command), UserGameCommand.class);
+    }
+}